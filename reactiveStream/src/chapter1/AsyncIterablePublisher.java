@@ -0,0 +1,67 @@
+package chapter1;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * Iterable을 비동기로 흘려보내는 재사용 가능한 Publisher
+ * request 마다 작업을 새로 던지는 대신, 하나의 drain 루프가 쌓인 요청량만큼 한 번에 보내준다.
+ */
+public class AsyncIterablePublisher<T> implements Publisher<T> {
+    // executor 한 번 탈 때 최대로 보내는 개수, 다른 구독에게도 스레드를 양보하기 위함
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final Iterable<T> iterable;
+    private final Executor executor;
+    private final int batchSize;
+    private final int chunkSize;
+    private final SubscriptionStats stats = new SubscriptionStats();
+
+    public AsyncIterablePublisher(Iterable<T> iterable, Executor executor) {
+        this(iterable, executor, DEFAULT_BATCH_SIZE);
+    }
+
+    public AsyncIterablePublisher(Iterable<T> iterable, Executor executor, int batchSize) {
+        this(iterable, executor, batchSize, 1);
+    }
+
+    private AsyncIterablePublisher(Iterable<T> iterable, Executor executor, int batchSize, int chunkSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize > 0 required but it was " + batchSize);
+        }
+        this.iterable = Objects.requireNonNull(iterable, "iterable");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 최대 chunkSize 개씩 묶어서 onNextChunk로 넘겨주는 Publisher를 만든다.
+     * ChunkSubscriber가 아닌 Subscriber는 하나씩 풀어서 onNext로 받게 된다.
+     * executor 한 번 탈 때 보내는 개수(batchSize)도 최소 한 묶음은 되도록 맞춰준다.
+     */
+    public AsyncIterablePublisher<T> chunked(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+        }
+        return new AsyncIterablePublisher<>(iterable, executor, Math.max(batchSize, chunkSize), chunkSize);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        IterableSubscription.create(subscriber, iterable, executor, batchSize, chunkSize, stats).init();
+    }
+
+    /** 아직 끝나지 않은 구독 수 */
+    public int activeSubscriptions() {
+        return stats.active();
+    }
+
+    /** 지금까지 cancel 된 구독 수 */
+    public long cancelledSubscriptions() {
+        return stats.cancelled();
+    }
+}
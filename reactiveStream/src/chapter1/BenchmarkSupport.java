@@ -0,0 +1,44 @@
+package chapter1;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** 벤치마크에서 같이 쓰는 도구 모음 */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {
+    }
+
+    /** 1 ~ count 까지의 값을 만들어주는 Iterable, 리스트를 미리 만들어두지 않아서 메모리를 차지하지 않는다. */
+    static Iterable<Integer> range(int count) {
+        return () -> new Iterator<Integer>() {
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public Integer next() {
+                if (i >= count) {
+                    throw new NoSuchElementException();
+                }
+                return ++i;
+            }
+        };
+    }
+
+    /** 초당 처리 개수를 보기 좋게 출력한다. */
+    static void report(String name, long count, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("%-40s %,14d items %10.1f ms %,16.0f items/s%n",
+                name, count, elapsedNanos / 1_000_000.0, count / seconds);
+    }
+
+    /** 현재 스레드가 지금까지 할당한 바이트 수 (HotSpot 전용 ThreadMXBean 사용) */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,39 @@
+package chapter1;
+
+/**
+ * 여러 개의 원소를 한 번에 넘겨주기 위한 묶음
+ * publisher가 같은 배열을 계속 재사용하기 때문에 onNextChunk 안에서만 유효하다.
+ * 밖에서 계속 사용해야 한다면 값을 복사해둬야 한다.
+ */
+public final class Chunk<T> {
+    final Object[] items;
+    int size;
+
+    Chunk(int capacity) {
+        this.items = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return (T) items[index];
+    }
+
+    int capacity() {
+        return items.length;
+    }
+
+    /** 다 넘겨준 뒤에는 참조를 지워서 GC가 가져갈 수 있도록 한다. */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            items[i] = null;
+        }
+        size = 0;
+    }
+}
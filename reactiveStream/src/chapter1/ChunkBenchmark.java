@@ -0,0 +1,102 @@
+package chapter1;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * chunk 크기(1 ~ 4096)에 따른 IterablePublisher / AsyncIterablePublisher 처리량 비교
+ * subscriber는 4096개씩 요청하고, 절반을 소모하면 다시 요청한다.
+ * 마지막에는 onNext만 아는 subscriber가 어댑터를 거쳐서 받을 때의 처리량도 같이 본다.
+ */
+public class ChunkBenchmark {
+    static final int COUNT = 10_000_000;
+    static final int REQUEST = 4096;
+    static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : COUNT;
+        ExecutorService es = Executors.newCachedThreadPool();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("round " + round);
+            for (int chunkSize = 1; chunkSize <= 4096; chunkSize <<= 1) {
+                run("sync  chunk=" + chunkSize,
+                        new IterablePublisher<>(BenchmarkSupport.range(count)).chunked(chunkSize), new CountingSubscriber());
+                run("async chunk=" + chunkSize,
+                        new AsyncIterablePublisher<>(BenchmarkSupport.range(count), es).chunked(chunkSize), new CountingSubscriber());
+            }
+            run("sync  chunk=256 (unbatching adapter)",
+                    new IterablePublisher<>(BenchmarkSupport.range(count)).chunked(256), new ItemSubscriber());
+            run("async chunk=256 (unbatching adapter)",
+                    new AsyncIterablePublisher<>(BenchmarkSupport.range(count), es).chunked(256), new ItemSubscriber());
+        }
+
+        es.shutdown();
+        es.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static void run(String name, Publisher<Integer> publisher, ItemSubscriber subscriber) throws InterruptedException {
+        long start = System.nanoTime();
+        publisher.subscribe(subscriber);
+        subscriber.latch.await();
+        BenchmarkSupport.report(name, subscriber.count, System.nanoTime() - start);
+    }
+
+    /** onNext로 하나씩 받는 subscriber */
+    static class ItemSubscriber implements Subscriber<Integer> {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Subscription subscription;
+        long count;
+        long sum;
+        int consumed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(REQUEST);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            sum += item;
+            count++;
+            consumed(1);
+        }
+
+        void consumed(int n) {
+            consumed += n;
+            if (consumed >= REQUEST / 2) {
+                subscription.request(consumed);
+                consumed = 0;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+            latch.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            latch.countDown();
+        }
+    }
+
+    /** onNextChunk로 묶음 단위로 받는 subscriber */
+    static class CountingSubscriber extends ItemSubscriber implements ChunkSubscriber<Integer> {
+        @Override
+        public void onNextChunk(Chunk<? extends Integer> chunk) {
+            int n = chunk.size();
+            for (int i = 0; i < n; i++) {
+                sum += chunk.get(i);
+            }
+            count += n;
+            consumed(n);
+        }
+    }
+}
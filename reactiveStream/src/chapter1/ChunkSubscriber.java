@@ -0,0 +1,12 @@
+package chapter1;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * 묶음(Chunk) 단위로 값을 받을 수 있는 Subscriber
+ * 요청량은 여전히 원소 개수 기준이며, 하나의 Chunk에는 요청량을 넘지 않는 만큼만 담겨서 온다.
+ * chunk 모드가 아닌 publisher에서는 평소처럼 onNext로 받는다.
+ */
+public interface ChunkSubscriber<T> extends Subscriber<T> {
+    void onNextChunk(Chunk<? extends T> chunk);
+}
@@ -0,0 +1,31 @@
+package chapter1;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** request(n)로 들어온 요청량을 다루는 도구 */
+final class Demand {
+    private Demand() {
+    }
+
+    /** 요청량을 더하되, Long.MAX_VALUE를 넘어가지 않도록 막아준다. 더하기 전의 값을 돌려준다. */
+    static long addCap(AtomicLong requested, long n) {
+        for (;;) {
+            long current = requested.get();
+            if (current == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            long next = current + n;
+            if (next < 0L) {
+                next = Long.MAX_VALUE;
+            }
+            if (requested.compareAndSet(current, next)) {
+                return current;
+            }
+        }
+    }
+
+    /** 규약 3.9 - 0 이하의 요청이 들어왔을 때 onError로 넘겨줄 예외 */
+    static IllegalArgumentException badRequest(long n) {
+        return new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n);
+    }
+}
@@ -0,0 +1,101 @@
+package chapter1;
+
+import java.util.Objects;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * int 값을 박싱 없이 흘려보내는 Publisher
+ * Flow.Publisher<Integer>와는 boxed() / fromPublisher()로 서로 변환할 수 있다.
+ */
+@FunctionalInterface
+public interface IntPublisher {
+    void subscribe(IntSubscriber subscriber);
+
+    /** start 부터 count 개의 연속된 int를 보내준다. */
+    static IntPublisher range(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if ((long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("start + count can not exceed Integer.MAX_VALUE");
+        }
+        return new IntRangePublisher(start, count);
+    }
+
+    /** 박싱된 Publisher를 int 전용으로 바꿔준다. 값을 꺼낼 때 unboxing만 하고 새로 할당하지는 않는다. */
+    static IntPublisher fromPublisher(Publisher<Integer> source) {
+        Objects.requireNonNull(source, "source");
+        return subscriber -> source.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                subscriber.onNextInt(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    /** 기존 Flow.Subscriber에게 넘겨야 할 때 사용한다. 이 경계에서부터는 박싱이 일어난다. */
+    default Publisher<Integer> boxed() {
+        return subscriber -> subscribe(new IntSubscriber() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNextInt(int value) {
+                subscriber.onNext(value);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    /** int를 long으로 넓혀서 보내준다. 둘 다 primitive라 할당은 없다. */
+    default LongPublisher asLongPublisher() {
+        return subscriber -> subscribe(new IntSubscriber() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNextInt(int value) {
+                subscriber.onNextLong(value);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package chapter1;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * IntPublisher(박싱 없음)와 Flow.Publisher<Integer>(박싱) 경로의 처리량, 할당량 비교
+ * 같은 range를 구독해서 합계를 구하고, 원소당 할당된 바이트 수를 같이 출력한다.
+ */
+public class IntPublisherBenchmark {
+    static final int COUNT = 100_000_000;
+    static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : COUNT;
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("round " + round);
+            runBoxed(count);
+            runInt(count);
+            runLong(count);
+        }
+    }
+
+    private static void runBoxed(int count) {
+        Publisher<Integer> publisher = IntPublisher.range(0, count).boxed();
+        long[] sum = new long[1];
+
+        long allocated = BenchmarkSupport.allocatedBytes();
+        long start = System.nanoTime();
+        publisher.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                sum[0] += item;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        report("Publisher<Integer> (boxed)", count, start, allocated, sum[0]);
+    }
+
+    private static void runInt(int count) {
+        IntPublisher publisher = IntPublisher.range(0, count);
+        long[] sum = new long[1];
+
+        long allocated = BenchmarkSupport.allocatedBytes();
+        long start = System.nanoTime();
+        publisher.subscribe(new IntSubscriber() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNextInt(int value) {
+                sum[0] += value;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        report("IntPublisher", count, start, allocated, sum[0]);
+    }
+
+    private static void runLong(int count) {
+        LongPublisher publisher = LongPublisher.range(0, count);
+        long[] sum = new long[1];
+
+        long allocated = BenchmarkSupport.allocatedBytes();
+        long start = System.nanoTime();
+        publisher.subscribe(new LongSubscriber() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNextLong(long value) {
+                sum[0] += value;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        report("LongPublisher", count, start, allocated, sum[0]);
+    }
+
+    private static void report(String name, int count, long start, long allocatedBefore, long sum) {
+        long elapsed = System.nanoTime() - start;
+        long allocated = BenchmarkSupport.allocatedBytes() - allocatedBefore;
+        BenchmarkSupport.report(name, count, elapsed);
+        System.out.printf("%-40s %,14d bytes %10.2f B/item (sum = %d)%n",
+                "", allocated, (double) allocated / count, sum);
+    }
+}
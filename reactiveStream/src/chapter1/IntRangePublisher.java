@@ -0,0 +1,92 @@
+package chapter1;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Flow.*;
+
+/** IntPublisher.range()의 구현체, 값을 만들어서 바로 onNextInt로 넘기기 때문에 할당이 없다. */
+final class IntRangePublisher implements IntPublisher {
+    private final int start;
+    private final long end;
+
+    IntRangePublisher(int start, int count) {
+        this.start = start;
+        this.end = (long) start + count;
+    }
+
+    @Override
+    public void subscribe(IntSubscriber subscriber) {
+        subscriber.onSubscribe(new RangeSubscription(subscriber, start, end));
+    }
+
+    static final class RangeSubscription implements Subscription {
+        final IntSubscriber subscriber;
+        final long end;
+        final AtomicLong requested = new AtomicLong();
+
+        // 요청량이 0에서 늘어난 쪽(가장 바깥 request 호출)만 접근한다.
+        long index;
+
+        volatile boolean cancelled;
+
+        RangeSubscription(IntSubscriber subscriber, int start, long end) {
+            this.subscriber = subscriber;
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(Demand.badRequest(n));
+                return;
+            }
+            // 이미 누군가 보내고 있다면 (onNextInt 안에서 다시 request 한 경우 등) 요청량만 더해준다.
+            if (Demand.addCap(requested, n) == 0) {
+                drain(n);
+            }
+        }
+
+        void drain(long n) {
+            final IntSubscriber s = subscriber;
+            final long f = end;
+            long i = index;
+            long e = 0;
+
+            for (;;) {
+                while (e != n && i != f) {
+                    if (cancelled) {
+                        return;
+                    }
+                    s.onNextInt((int) i);
+                    e++;
+                    i++;
+                }
+
+                if (cancelled) {
+                    return;
+                }
+                if (i == f) {
+                    s.onComplete();
+                    return;
+                }
+
+                n = requested.get();
+                if (n == e) {
+                    index = i;
+                    n = requested.addAndGet(-e);
+                    if (n == 0) {
+                        return;
+                    }
+                    e = 0;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package chapter1;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * int 전용 Subscriber
+ * onNext(Integer) 대신 onNextInt(int)를 받기 때문에 원소마다 Integer 박싱이 일어나지 않는다.
+ * 신호 규약은 Flow.Subscriber와 같다. onSubscribe onNextInt* (onError | onComplete)?
+ */
+public interface IntSubscriber {
+    void onSubscribe(Subscription subscription);
+
+    void onNextInt(int value);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+}
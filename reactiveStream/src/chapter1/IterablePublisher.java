@@ -0,0 +1,55 @@
+package chapter1;
+
+import java.util.Objects;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * Iterable을 request를 호출한 스레드에서 그대로 흘려보내는 Publisher (PubSub의 동기 버전)
+ *
+ * onNext 안에서 request를 다시 호출하면 기존 방식은 request -> onNext -> request ... 로 스택이 계속 쌓인다.
+ * 여기서는 안쪽의 request는 요청량만 더해주고, 가장 바깥의 request가 루프를 돌며 보내준다. (trampoline)
+ * 그래서 원소 개수와 상관없이 스택 깊이가 일정하다.
+ */
+public class IterablePublisher<T> implements Publisher<T> {
+    private final Iterable<T> iterable;
+    private final int chunkSize;
+    private final SubscriptionStats stats = new SubscriptionStats();
+
+    public IterablePublisher(Iterable<T> iterable) {
+        this(iterable, 1);
+    }
+
+    private IterablePublisher(Iterable<T> iterable, int chunkSize) {
+        this.iterable = Objects.requireNonNull(iterable, "iterable");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 최대 chunkSize 개씩 묶어서 onNextChunk로 넘겨주는 Publisher를 만든다.
+     * ChunkSubscriber가 아닌 Subscriber는 하나씩 풀어서 onNext로 받게 된다.
+     */
+    public IterablePublisher<T> chunked(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+        }
+        return new IterablePublisher<>(iterable, chunkSize);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        // executor 대신 현재 스레드에서 바로 실행, 다른 스레드로 넘길 일이 없으니 batch 제한도 두지 않는다.
+        IterableSubscription.create(subscriber, iterable, Runnable::run, Integer.MAX_VALUE, chunkSize, stats).init();
+    }
+
+    /** 아직 끝나지 않은 구독 수 */
+    public int activeSubscriptions() {
+        return stats.active();
+    }
+
+    /** 지금까지 cancel 된 구독 수 */
+    public long cancelledSubscriptions() {
+        return stats.cancelled();
+    }
+}
@@ -0,0 +1,333 @@
+package chapter1;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * Iterable 기반 Publisher들이 같이 쓰는 구독 상태와 drain 루프
+ * Runnable 자체가 drain 작업이 되며, executor에 따라 동기 / 비동기가 결정된다.
+ *
+ * 요청량(requested)이 0에서 늘어난 쪽만 drain 루프를 시작하기 때문에 루프는 항상 한 곳에서만 돈다.
+ * onNext 안에서 다시 request를 호출하더라도 요청량만 더해지고, 이미 돌고 있는 루프가 이어서 보내준다.
+ *
+ * chunk 모드에서는 iterator에서 최대 chunkSize 개를 재사용 배열에 꺼내 담고, onNextChunk 한 번으로 넘겨준다.
+ *
+ * 종료(onComplete / onError / cancel) 후에는 requested를 0으로 되돌리지 않는다.
+ * 그래서 이후의 request는 drain 루프를 다시 시작하지 않고, 정리(release)도 정확히 한 번만 일어난다.
+ */
+final class IterableSubscription<T> implements Subscription, Runnable {
+    final Subscriber<? super T> subscriber;
+    final Iterable<T> iterable;
+    final Executor executor;
+    final int batchSize;
+    final SubscriptionStats stats;
+    // chunk 모드일 때만 존재한다.
+    final ChunkSubscriber<? super T> chunkSubscriber;
+    final Chunk<T> chunk;
+
+    // 아직 보내지 않은 요청량, 0이 아니면 drain 루프가 돌고 있거나 곧 돌게 된다.
+    final AtomicLong requested = new AtomicLong();
+
+    // drain 루프 안에서만 접근하는 값들 (한 번에 하나의 스레드만 접근)
+    Iterator<T> iterator;
+    // batch 단위로 executor에 다시 넘길 때, 이번 요청량 중 이미 보낸 개수를 기억해둔다.
+    long emitted;
+    // drain 루프를 돌고 있는 스레드가 onNext 안에서 다시 request 한 요청량, 같은 스레드라서 원자 연산이 필요 없다.
+    long reentrantRequested;
+    // 루프에 이미 반영한 재진입 요청량 (requested에는 더해지지 않은 몫)
+    long merged;
+    // 종료 신호를 보냈거나 정리가 끝났는지
+    boolean done;
+
+    // 지금 drain 루프를 돌고 있는 스레드
+    volatile Thread drainer;
+
+    volatile boolean cancelled;
+    // 잘못된 request(n) 값, drain 루프에서 onError로 전달한다.
+    volatile Throwable badRequest;
+
+    IterableSubscription(Subscriber<? super T> subscriber, Iterable<T> iterable, Executor executor, int batchSize,
+                         SubscriptionStats stats) {
+        this.subscriber = subscriber;
+        this.iterable = iterable;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.stats = stats;
+        this.chunkSubscriber = null;
+        this.chunk = null;
+    }
+
+    IterableSubscription(ChunkSubscriber<? super T> subscriber, Iterable<T> iterable, Executor executor, int batchSize,
+                         SubscriptionStats stats, int chunkSize) {
+        this.subscriber = subscriber;
+        this.iterable = iterable;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.stats = stats;
+        this.chunkSubscriber = subscriber;
+        this.chunk = new Chunk<>(chunkSize);
+    }
+
+    /** chunk 모드라면 onNext만 아는 subscriber를 어댑터로 감싸서 구독을 만들어준다. */
+    @SuppressWarnings("unchecked")
+    static <T> IterableSubscription<T> create(Subscriber<? super T> subscriber, Iterable<T> iterable,
+                                              Executor executor, int batchSize, int chunkSize,
+                                              SubscriptionStats stats) {
+        if (chunkSize <= 1) {
+            return new IterableSubscription<>(subscriber, iterable, executor, batchSize, stats);
+        }
+        ChunkSubscriber<? super T> chunkSubscriber = subscriber instanceof ChunkSubscriber
+                ? (ChunkSubscriber<? super T>) subscriber
+                : new UnbatchingSubscriber<>(subscriber);
+        return new IterableSubscription<>(chunkSubscriber, iterable, executor, batchSize, stats, chunkSize);
+    }
+
+    void init() {
+        stats.started();
+        try {
+            iterator = Objects.requireNonNull(iterable.iterator(), "iterator");
+        } catch (Throwable t) {
+            // 규약 1.9 - onError 전에도 onSubscribe는 먼저 호출해줘야 한다.
+            // 요청량을 미리 올려둬서 drain 루프가 시작되지 않도록 한다.
+            requested.set(Long.MAX_VALUE);
+            subscriber.onSubscribe(this);
+            error(t);
+            return;
+        }
+        subscriber.onSubscribe(this);
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // 규약 3.9 - 0 이하의 요청은 onError로 알려줘야 한다.
+            // 신호가 겹치지 않도록 drain 루프를 깨워서 그 안에서 보내준다.
+            badRequest = Demand.badRequest(n);
+            n = 1;
+        }
+        if (drainer == Thread.currentThread()) {
+            // onNext 안에서의 재진입, 루프가 끝나기 전에 이어서 반영해준다.
+            reentrantRequested = capAdd(reentrantRequested, n);
+            return;
+        }
+        if (Demand.addCap(requested, n) == 0) {
+            schedule();
+        }
+    }
+
+    /**
+     * 돌고 있는 drain 루프는 다음 원소를 보내기 전에 멈추고 정리한다.
+     * 돌고 있는 루프가 없다면 요청량을 올려서 루프가 다시 시작되지 않게 막고, 여기서 바로 정리한다.
+     */
+    @Override
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        if (Demand.addCap(requested, 1) == 0) {
+            release(true);
+        }
+    }
+
+    void schedule() {
+        try {
+            executor.execute(this);
+        } catch (Throwable t) {
+            // 작업이 거절되었다면 루프가 돌 일이 없으니 여기서 바로 에러를 넘겨준다.
+            if (!cancelled) {
+                error(t);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        drainer = Thread.currentThread();
+        boolean handedOff = false;
+        try {
+            handedOff = drain();
+        } finally {
+            // 다음 batch를 다른 스레드에 넘긴 경우에는 이미 비워두었다. (넘겨받은 스레드의 값을 지우면 안 된다.)
+            if (!handedOff) {
+                drainer = null;
+            }
+        }
+    }
+
+    /** @return 다음 batch를 executor에 넘겼다면 true */
+    boolean drain() {
+        final Iterator<T> it = iterator;
+        long e = emitted;
+        long m = merged;
+        long sent = 0;
+
+        for (;;) {
+            long n = capAdd(requested.get(), m);
+
+            while (e != n) {
+                if (isTerminated()) {
+                    return false;
+                }
+
+                long k = chunk == null ? emitOne(it) : emitChunk(it, n - e);
+                if (k < 0) {
+                    return false;
+                }
+                e += k;
+                sent += k;
+
+                // 한 번의 hop에서 너무 오래 붙잡고 있지 않도록, batch만큼 보냈다면 다시 executor에 넘긴다.
+                if (sent >= batchSize) {
+                    emitted = e;
+                    merged = m;
+                    drainer = null;
+                    schedule();
+                    return true;
+                }
+            }
+
+            if (isTerminated()) {
+                return false;
+            }
+
+            // onNext 안에서 다시 request 했다면 원자 연산 없이 이번 루프의 요청량에 더해준다.
+            long r = reentrantRequested;
+            if (r != 0L) {
+                reentrantRequested = 0L;
+                m = capAdd(m, r);
+                continue;
+            }
+
+            // 요청량만큼 다 보냈는데 iterator가 끝났다면 다음 request를 기다리지 않고 완료 처리
+            boolean hasNext;
+            try {
+                hasNext = it.hasNext();
+            } catch (Throwable t) {
+                error(t);
+                return false;
+            }
+            if (!hasNext) {
+                complete();
+                return false;
+            }
+
+            // 그 사이에 다른 스레드에서 요청이 더 들어오지 않았다면 보낸 만큼 빼주고, 0이 되면 루프를 빠져나간다.
+            long a = requested.get();
+            if (capAdd(a, m) == e) {
+                emitted = 0L;
+                merged = 0L;
+                if (requested.addAndGet(-a) == 0L) {
+                    return false;
+                }
+                e = 0L;
+                m = 0L;
+            }
+        }
+    }
+
+    /** 원소 하나를 보낸다. 종료 신호를 보냈다면 -1 */
+    long emitOne(Iterator<T> it) {
+        T item;
+        try {
+            if (!it.hasNext()) {
+                complete();
+                return -1;
+            }
+            item = Objects.requireNonNull(it.next(), "The iterator returned a null value");
+        } catch (Throwable t) {
+            error(t);
+            return -1;
+        }
+        subscriber.onNext(item);
+        return 1;
+    }
+
+    /** 요청량을 넘지 않는 만큼 chunk에 담아서 한 번에 보낸다. 종료 신호를 보냈다면 -1 */
+    long emitChunk(Iterator<T> it, long outstanding) {
+        final Chunk<T> c = chunk;
+        final Object[] items = c.items;
+        int limit = (int) Math.min(items.length, outstanding);
+        int count = 0;
+        boolean exhausted = false;
+        Throwable error = null;
+
+        try {
+            while (count < limit) {
+                if (!it.hasNext()) {
+                    exhausted = true;
+                    break;
+                }
+                items[count++] = Objects.requireNonNull(it.next(), "The iterator returned a null value");
+            }
+        } catch (Throwable t) {
+            error = t;
+        }
+
+        // 에러가 나기 전까지 꺼낸 값들은 먼저 넘겨준다.
+        if (count != 0) {
+            c.size = count;
+            chunkSubscriber.onNextChunk(c);
+            c.clear();
+        }
+
+        if (error != null || exhausted) {
+            // onNextChunk 안에서 cancel 했다면 종료 신호는 보내지 않고 정리만 한다.
+            if (!isTerminated()) {
+                if (error != null) {
+                    error(error);
+                } else {
+                    complete();
+                }
+            }
+            return -1;
+        }
+        return count;
+    }
+
+    /** cancel 되었거나 이미 종료되었다면 true, cancel 된 경우에는 여기서 정리까지 한다. */
+    boolean isTerminated() {
+        if (done) {
+            return true;
+        }
+        if (cancelled) {
+            release(true);
+            return true;
+        }
+        Throwable bad = badRequest;
+        if (bad != null) {
+            error(bad);
+            return true;
+        }
+        return false;
+    }
+
+    void complete() {
+        release(false);
+        subscriber.onComplete();
+    }
+
+    void error(Throwable t) {
+        release(false);
+        subscriber.onError(t);
+    }
+
+    /** iterator와 chunk가 잡고 있는 참조를 놓아준다. 구독당 한 번만 호출된다. */
+    void release(boolean byCancel) {
+        done = true;
+        iterator = null;
+        if (chunk != null) {
+            chunk.clear();
+        }
+        stats.terminated(byCancel);
+    }
+
+    static long capAdd(long a, long b) {
+        long r = a + b;
+        return r < 0L ? Long.MAX_VALUE : r;
+    }
+}
@@ -0,0 +1,76 @@
+package chapter1;
+
+import java.util.Objects;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * long 값을 박싱 없이 흘려보내는 Publisher
+ * Flow.Publisher<Long>과는 boxed() / fromPublisher()로 서로 변환할 수 있다.
+ */
+@FunctionalInterface
+public interface LongPublisher {
+    void subscribe(LongSubscriber subscriber);
+
+    /** start 부터 count 개의 연속된 long을 보내준다. */
+    static LongPublisher range(long start, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if (count > 0 && start > Long.MAX_VALUE - (count - 1)) {
+            throw new IllegalArgumentException("start + count can not exceed Long.MAX_VALUE");
+        }
+        return new LongRangePublisher(start, count);
+    }
+
+    /** 박싱된 Publisher를 long 전용으로 바꿔준다. */
+    static LongPublisher fromPublisher(Publisher<Long> source) {
+        Objects.requireNonNull(source, "source");
+        return subscriber -> source.subscribe(new Subscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(Long item) {
+                subscriber.onNextLong(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    /** 기존 Flow.Subscriber에게 넘겨야 할 때 사용한다. 이 경계에서부터는 박싱이 일어난다. */
+    default Publisher<Long> boxed() {
+        return subscriber -> subscribe(new LongSubscriber() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNextLong(long value) {
+                subscriber.onNext(value);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+}
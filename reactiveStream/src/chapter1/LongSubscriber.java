@@ -0,0 +1,18 @@
+package chapter1;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * long 전용 Subscriber
+ * onNext(Long) 대신 onNextLong(long)을 받기 때문에 원소마다 Long 박싱이 일어나지 않는다.
+ * 신호 규약은 Flow.Subscriber와 같다. onSubscribe onNextLong* (onError | onComplete)?
+ */
+public interface LongSubscriber {
+    void onSubscribe(Subscription subscription);
+
+    void onNextLong(long value);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+}
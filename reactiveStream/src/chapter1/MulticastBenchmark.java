@@ -0,0 +1,103 @@
+package chapter1;
+
+import java.util.Observable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * ObserverTest의 Observable 방식과 MulticastPublisher의 fan-out 처리량 비교
+ * 구독자 수 1, 10, 100, 1000 에서 (전달된 원소 수 / 걸린 시간)을 출력한다.
+ */
+@SuppressWarnings("deprecation")
+public class MulticastBenchmark {
+    // 구독자 수와 상관없이 전체 전달 횟수를 맞춰주기 위한 값
+    static final int TOTAL_DELIVERIES = 10_000_000;
+    static final int[] SUBSCRIBERS = {1, 10, 100, 1000};
+    static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService es = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("round " + round);
+            for (int subscribers : SUBSCRIBERS) {
+                int items = Math.max(1000, TOTAL_DELIVERIES / subscribers);
+                runObservable(subscribers, items);
+                runMulticast(es, subscribers, items);
+            }
+        }
+
+        es.shutdown();
+        es.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static void runObservable(int subscribers, int items) {
+        IntObservable observable = new IntObservable();
+        LongAdder received = new LongAdder();
+        for (int i = 0; i < subscribers; i++) {
+            observable.addObserver((o, arg) -> received.increment());
+        }
+
+        long start = System.nanoTime();
+        observable.publish(items);
+        BenchmarkSupport.report("Observable x" + subscribers, received.sum(), System.nanoTime() - start);
+    }
+
+    private static void runMulticast(ExecutorService es, int subscribers, int items) throws InterruptedException {
+        MulticastPublisher<Integer> publisher = new MulticastPublisher<>(es, 1024);
+        LongAdder received = new LongAdder();
+        CountDownLatch latch = new CountDownLatch(subscribers);
+
+        for (int i = 0; i < subscribers; i++) {
+            publisher.subscribe(new Subscriber<Integer>() {
+                long count;
+
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    count++;
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throwable.printStackTrace();
+                    latch.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    received.add(count);
+                    latch.countDown();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= items; i++) {
+            // 값을 잃지 않고 Observable과 같은 개수를 전달하도록 submit 사용
+            publisher.submit(i);
+        }
+        publisher.complete();
+        latch.await();
+        BenchmarkSupport.report("MulticastPublisher x" + subscribers, received.sum(), System.nanoTime() - start);
+    }
+
+    /** ObserverTest.IntObservable과 같은 방식, 개수만 조절할 수 있도록 했다. */
+    static class IntObservable extends Observable {
+        void publish(int items) {
+            for (int i = 1; i <= items; i++) {
+                setChanged();
+                notifyObservers(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package chapter1;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * 하나의 값을 여러 Subscriber에게 나눠주는 Publisher (Observable의 notifyObservers 대체)
+ *
+ * 1. 구독자마다 크기가 정해진 버퍼와 요청량을 따로 가진다. 느린 구독자는 자기 버퍼만 채울 뿐 다른 구독자를 막지 않는다.
+ * 2. 전달은 생산자 스레드가 아닌 executor에서 구독자별 drain 루프로 진행된다.
+ * 3. 구독자 목록은 copy-on-write 배열 + CAS로 관리하기 때문에 전역 락이 없다.
+ *
+ * offer / submit / complete / error 는 한 번에 하나의 스레드에서만 호출해야 한다. (단일 생산자)
+ */
+public class MulticastPublisher<T> implements Publisher<T> {
+    static final int DEFAULT_BUFFER_SIZE = 256;
+
+    @SuppressWarnings("rawtypes")
+    static final InnerSubscription[] EMPTY = new InnerSubscription[0];
+    @SuppressWarnings("rawtypes")
+    static final InnerSubscription[] TERMINATED = new InnerSubscription[0];
+
+    private final Executor executor;
+    private final int bufferSize;
+
+    @SuppressWarnings("unchecked")
+    private final AtomicReference<InnerSubscription<T>[]> subscribers = new AtomicReference<>(EMPTY);
+
+    // complete / error 이후에 구독한 Subscriber에게 알려주기 위해서 보관
+    private volatile Throwable error;
+
+    public MulticastPublisher(Executor executor) {
+        this(executor, DEFAULT_BUFFER_SIZE);
+    }
+
+    public MulticastPublisher(Executor executor, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize > 0 required but it was " + bufferSize);
+        }
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        InnerSubscription<T> inner = new InnerSubscription<>(subscriber, this, executor, bufferSize);
+        subscriber.onSubscribe(inner);
+
+        if (!add(inner)) {
+            // 이미 종료된 publisher라면 바로 종료 신호를 보내준다.
+            Throwable t = error;
+            if (t != null) {
+                inner.error = t;
+            }
+            inner.done = true;
+            inner.schedule();
+        }
+    }
+
+    /**
+     * 모든 구독자의 버퍼에 값을 넣는다. 절대 기다리지 않는다.
+     * @return 버퍼가 가득 차서 값을 버린 구독자 수
+     */
+    public int offer(T item) {
+        Objects.requireNonNull(item, "item");
+        int dropped = 0;
+        for (InnerSubscription<T> inner : subscribers.get()) {
+            if (!inner.offer(item)) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 모든 구독자의 버퍼에 값을 넣는다. 버퍼가 가득 찬 구독자가 있다면 자리가 날 때까지 기다린다.
+     * 값을 잃지 않는 대신, 가장 느린 구독자의 속도에 생산자가 맞춰지게 된다.
+     */
+    public void submit(T item) {
+        Objects.requireNonNull(item, "item");
+        for (InnerSubscription<T> inner : subscribers.get()) {
+            while (!inner.offer(item)) {
+                if (inner.cancelled) {
+                    break;
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void complete() {
+        for (InnerSubscription<T> inner : subscribers.getAndSet(TERMINATED)) {
+            inner.onComplete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void error(Throwable throwable) {
+        Objects.requireNonNull(throwable, "throwable");
+        error = throwable;
+        for (InnerSubscription<T> inner : subscribers.getAndSet(TERMINATED)) {
+            inner.onError(throwable);
+        }
+    }
+
+    /** 현재 구독 중인 Subscriber 수 */
+    public int subscriberCount() {
+        return subscribers.get().length;
+    }
+
+    boolean add(InnerSubscription<T> inner) {
+        for (;;) {
+            InnerSubscription<T>[] current = subscribers.get();
+            if (current == TERMINATED) {
+                return false;
+            }
+            int n = current.length;
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            InnerSubscription<T>[] next = new InnerSubscription[n + 1];
+            System.arraycopy(current, 0, next, 0, n);
+            next[n] = inner;
+            if (subscribers.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void remove(InnerSubscription<T> inner) {
+        for (;;) {
+            InnerSubscription<T>[] current = subscribers.get();
+            int n = current.length;
+            if (current == TERMINATED || n == 0) {
+                return;
+            }
+            int index = -1;
+            for (int i = 0; i < n; i++) {
+                if (current[i] == inner) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            InnerSubscription<T>[] next;
+            if (n == 1) {
+                next = EMPTY;
+            } else {
+                next = new InnerSubscription[n - 1];
+                System.arraycopy(current, 0, next, 0, index);
+                System.arraycopy(current, index + 1, next, index, n - index - 1);
+            }
+            if (subscribers.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /** 구독자 하나의 버퍼, 요청량, drain 루프 */
+    static final class InnerSubscription<T> implements Subscription, Runnable {
+        final Subscriber<? super T> subscriber;
+        final MulticastPublisher<T> parent;
+        final Executor executor;
+        final SpscArrayQueue<T> queue;
+
+        final AtomicLong requested = new AtomicLong();
+        final AtomicInteger wip = new AtomicInteger();
+
+        // drain 루프에서만 접근
+        long emitted;
+
+        volatile boolean done;
+        volatile boolean cancelled;
+        Throwable error;
+        volatile Throwable badRequest;
+
+        InnerSubscription(Subscriber<? super T> subscriber, MulticastPublisher<T> parent, Executor executor, int bufferSize) {
+            this.subscriber = subscriber;
+            this.parent = parent;
+            this.executor = executor;
+            this.queue = new SpscArrayQueue<>(bufferSize);
+        }
+
+        boolean offer(T item) {
+            if (cancelled) {
+                return true;
+            }
+            if (!queue.offer(item)) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        void onComplete() {
+            done = true;
+            schedule();
+        }
+
+        void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = Demand.badRequest(n);
+            } else {
+                Demand.addCap(requested, n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                parent.remove(this);
+                // drain 루프가 돌고 있지 않다면 버퍼를 직접 비워준다.
+                if (wip.getAndIncrement() == 0) {
+                    queue.clear();
+                }
+            }
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            final Subscriber<? super T> s = subscriber;
+            final SpscArrayQueue<T> q = queue;
+
+            for (;;) {
+                long r = requested.get();
+                long e = emitted;
+
+                while (e != r) {
+                    if (checkTerminated()) {
+                        return;
+                    }
+                    boolean d = done;
+                    T item = q.poll();
+                    if (item == null) {
+                        if (d) {
+                            terminate();
+                            return;
+                        }
+                        break;
+                    }
+                    s.onNext(item);
+                    e++;
+                }
+
+                if (e == r) {
+                    if (checkTerminated()) {
+                        return;
+                    }
+                    if (done && q.isEmpty()) {
+                        terminate();
+                        return;
+                    }
+                }
+
+                emitted = e;
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        boolean checkTerminated() {
+            if (cancelled) {
+                queue.clear();
+                return true;
+            }
+            Throwable bad = badRequest;
+            if (bad != null) {
+                cancelled = true;
+                parent.remove(this);
+                queue.clear();
+                subscriber.onError(bad);
+                return true;
+            }
+            return false;
+        }
+
+        void terminate() {
+            cancelled = true;
+            Throwable t = error;
+            if (t != null) {
+                subscriber.onError(t);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+    }
+}
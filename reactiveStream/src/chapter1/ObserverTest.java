@@ -4,6 +4,7 @@ import java.util.Observable;
 import java.util.Observer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 
 @SuppressWarnings("deprecation")
 public class ObserverTest {
@@ -66,6 +67,51 @@ public class ObserverTest {
         // excute는 스레드를 새롭게 생성해서 (별개의 스레드) 동작하기 때문에 더 나중에 동작하게 되는 것
         System.out.println("Hello!");
         es.shutdown();
+
+        /** Observable 대신 MulticastPublisher 사용하기 */
+//        multicastExample();
+    }
+
+    /**
+     * notifyObservers는 synchronized + 생산자 스레드에서 옵저버를 하나씩 순서대로 호출한다.
+     * MulticastPublisher는 구독자마다 버퍼와 요청량을 따로 두고 executor에서 전달하기 때문에
+     * 느린 구독자가 다른 구독자를 막지 않는다. (처리량 비교는 MulticastBenchmark 참고)
+     */
+    private static void multicastExample() {
+        ExecutorService es = Executors.newFixedThreadPool(3);
+        MulticastPublisher<Integer> publisher = new MulticastPublisher<>(es);
+
+        for (int i = 1; i <= 3; i++) {
+            String name = "subscriber" + i;
+            publisher.subscribe(new Flow.Subscriber<Integer>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    System.out.println(name + " = " + item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    System.out.println(name + " onError = " + throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    System.out.println(name + " onComplete!");
+                    // observer 패턴과 다르게 complete가 있다.
+                }
+            });
+        }
+
+        for (int i = 1; i <= 10; i++) {
+            publisher.submit(i);
+        }
+        publisher.complete();
+        es.shutdown();
     }
 
     // observable은 외부에서 이벤트를 만들어내야 한다.
@@ -0,0 +1,420 @@
+package chapter1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * 쪼갤 수 있는 source(Spliterator)를 K개의 rail로 나눠서 각각 ForkJoinPool의 worker에서 흘려보내는 Publisher
+ *
+ * Basic의 Iterable은 한 번에 하나씩만 꺼낼 수 있지만, Spliterator는 trySplit으로 앞 / 뒤 구간을 나눌 수 있다.
+ * map은 각 rail의 worker 스레드에서 실행되기 때문에 원소마다 CPU를 많이 쓰는 작업도 코어 수만큼 나눠서 처리된다.
+ *
+ * - rails() : K개의 독립적인 Publisher, 순서는 rail 안에서만 보장된다.
+ * - ordered() : 원래 순서대로 이어 붙인 하나의 Publisher, rail마다 prefetch 만큼만 미리 받아둔다.
+ */
+public final class ParallelPublisher<T> {
+    static final int DEFAULT_PREFETCH = 1024;
+
+    private final Supplier<? extends Spliterator<T>> source;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    private ParallelPublisher(Supplier<? extends Spliterator<T>> source, int parallelism, ForkJoinPool pool) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism > 0 required but it was " + parallelism);
+        }
+        this.source = Objects.requireNonNull(source, "source");
+        this.parallelism = parallelism;
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /** 구독할 때마다 새로운 Spliterator를 만들어서 rails 개로 나눈다. */
+    public static <T> ParallelPublisher<T> from(Supplier<? extends Spliterator<T>> source, int rails, ForkJoinPool pool) {
+        return new ParallelPublisher<>(source, rails, pool);
+    }
+
+    /** Iterable의 spliterator()를 사용한다. 크기를 모르는 Iterable은 잘 쪼개지지 않을 수 있다. */
+    public static <T> ParallelPublisher<T> from(Iterable<T> iterable, int rails, ForkJoinPool pool) {
+        Objects.requireNonNull(iterable, "iterable");
+        return new ParallelPublisher<>(iterable::spliterator, rails, pool);
+    }
+
+    /** start 부터 count 개의 int, index 기반이라 항상 균등하게 쪼개진다. */
+    public static ParallelPublisher<Integer> range(int start, int count, int rails, ForkJoinPool pool) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        return new ParallelPublisher<>(() -> IntStream.range(start, start + count).spliterator(), rails, pool);
+    }
+
+    /** 각 rail의 worker 스레드에서 mapper를 적용한다. */
+    public <R> ParallelPublisher<R> map(Function<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        Supplier<? extends Spliterator<T>> s = source;
+        return new ParallelPublisher<>(() -> new MappedSpliterator<>(s.get(), mapper), parallelism, pool);
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * rail 별로 독립적인 Publisher를 돌려준다.
+     * rail들을 한 번씩 구독하는 동안 source는 한 번만 만들어서 쪼개고, rail마다 자기 조각을 받는다. (SplitHolder)
+     * 이미 조각을 받은 rail을 다시 구독하면 source를 새로 만들어서 쪼개고, 그 뒤에 구독하는 rail도 새 조각을 받는다.
+     * source가 rail 수만큼 쪼개지지 않는다면 남는 rail은 바로 onComplete 된다.
+     */
+    public List<Publisher<T>> rails() {
+        SplitHolder<T> holder = new SplitHolder<>(source, parallelism);
+        List<Publisher<T>> rails = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            int index = i;
+            Iterable<T> rail = () -> {
+                Spliterator<T> part = holder.take(index);
+                return part != null ? Spliterators.iterator(part) : Collections.emptyIterator();
+            };
+            rails.add(new AsyncIterablePublisher<>(rail, pool));
+        }
+        return rails;
+    }
+
+    /** rail들을 동시에 돌리되, 결과는 source의 순서대로 이어서 보내준다. */
+    public Publisher<T> ordered() {
+        return ordered(DEFAULT_PREFETCH);
+    }
+
+    public Publisher<T> ordered(int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        return subscriber -> {
+            List<Spliterator<T>> parts = split(source.get(), parallelism);
+            List<Publisher<T>> rails = new ArrayList<>(parts.size());
+            for (Spliterator<T> part : parts) {
+                rails.add(new AsyncIterablePublisher<>(() -> Spliterators.iterator(part), pool));
+            }
+            new OrderedMergePublisher<>(rails, prefetch).subscribe(subscriber);
+        };
+    }
+
+    /**
+     * 가장 큰 조각을 계속 반으로 나눠서 최대 count 개로 만든다.
+     * ORDERED인 Spliterator의 trySplit은 앞부분을 떼어서 돌려주기 때문에 그 앞에 끼워 넣으면 순서가 유지된다.
+     */
+    static <T> List<Spliterator<T>> split(Spliterator<T> root, int count) {
+        List<Spliterator<T>> parts = new ArrayList<>(count);
+        parts.add(root);
+        while (parts.size() < count) {
+            int largest = 0;
+            for (int i = 1; i < parts.size(); i++) {
+                if (parts.get(i).estimateSize() > parts.get(largest).estimateSize()) {
+                    largest = i;
+                }
+            }
+            Spliterator<T> prefix = parts.get(largest).trySplit();
+            if (prefix == null) {
+                break;
+            }
+            parts.add(largest, prefix);
+        }
+        return parts;
+    }
+
+    /** rails()의 rail들이 같이 쓰는, 한 번 쪼갠 조각 묶음 */
+    static final class SplitHolder<T> {
+        final Supplier<? extends Spliterator<T>> source;
+        final int count;
+        List<Spliterator<T>> parts;
+        boolean[] taken;
+
+        SplitHolder(Supplier<? extends Spliterator<T>> source, int count) {
+            this.source = source;
+            this.count = count;
+        }
+
+        /** index번째 조각을 돌려준다. 쪼개진 조각이 그보다 적으면 null */
+        synchronized Spliterator<T> take(int index) {
+            if (parts == null || taken[index]) {
+                parts = split(source.get(), count);
+                taken = new boolean[count];
+            }
+            taken[index] = true;
+            return index < parts.size() ? parts.get(index) : null;
+        }
+    }
+
+    /** 쪼개기는 원본에 맡기고, 값을 꺼낼 때 mapper를 적용하는 Spliterator */
+    static final class MappedSpliterator<T, R> implements Spliterator<R> {
+        final Spliterator<T> source;
+        final Function<? super T, ? extends R> mapper;
+
+        MappedSpliterator(Spliterator<T> source, Function<? super T, ? extends R> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            return source.tryAdvance(t -> action.accept(mapper.apply(t)));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            source.forEachRemaining(t -> action.accept(mapper.apply(t)));
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            Spliterator<T> prefix = source.trySplit();
+            return prefix == null ? null : new MappedSpliterator<>(prefix, mapper);
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            // 값이 바뀌기 때문에 정렬, 중복 없음, non-null 은 더 이상 보장할 수 없다.
+            return source.characteristics() & ~(Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+
+    /** rail 목록을 순서대로 이어 붙이는 Publisher, 뒤쪽 rail은 prefetch 만큼 미리 받아둔다. */
+    static final class OrderedMergePublisher<T> implements Publisher<T> {
+        final List<Publisher<T>> rails;
+        final int prefetch;
+
+        OrderedMergePublisher(List<Publisher<T>> rails, int prefetch) {
+            this.rails = rails;
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super T> subscriber) {
+            OrderedMergeSubscription<T> parent = new OrderedMergeSubscription<>(subscriber, rails.size(), prefetch);
+            subscriber.onSubscribe(parent);
+            parent.subscribeRails(rails);
+        }
+    }
+
+    static final class OrderedMergeSubscription<T> implements Subscription {
+        final Subscriber<? super T> subscriber;
+        final RailSubscriber<T>[] rails;
+        final AtomicLong requested = new AtomicLong();
+        final AtomicInteger wip = new AtomicInteger();
+
+        // drain 루프에서만 접근
+        int current;
+        long emitted;
+
+        volatile boolean cancelled;
+        volatile Throwable badRequest;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        OrderedMergeSubscription(Subscriber<? super T> subscriber, int count, int prefetch) {
+            this.subscriber = subscriber;
+            this.rails = new RailSubscriber[count];
+            for (int i = 0; i < count; i++) {
+                rails[i] = new RailSubscriber<>(this, prefetch);
+            }
+        }
+
+        void subscribeRails(List<Publisher<T>> publishers) {
+            for (int i = 0; i < rails.length && !cancelled; i++) {
+                publishers.get(i).subscribe(rails[i]);
+            }
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = Demand.badRequest(n);
+            } else {
+                Demand.addCap(requested, n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                cancelRails();
+                if (wip.getAndIncrement() == 0) {
+                    clearRails();
+                }
+            }
+        }
+
+        void cancelRails() {
+            for (RailSubscriber<T> rail : rails) {
+                rail.cancel();
+            }
+        }
+
+        void clearRails() {
+            for (RailSubscriber<T> rail : rails) {
+                rail.queue.clear();
+            }
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            final Subscriber<? super T> s = subscriber;
+
+            for (;;) {
+                long r = requested.get();
+                long e = emitted;
+
+                for (;;) {
+                    if (cancelled) {
+                        clearRails();
+                        return;
+                    }
+                    Throwable bad = badRequest;
+                    if (bad != null) {
+                        cancelled = true;
+                        cancelRails();
+                        clearRails();
+                        s.onError(bad);
+                        return;
+                    }
+                    if (current == rails.length) {
+                        cancelled = true;
+                        s.onComplete();
+                        return;
+                    }
+
+                    RailSubscriber<T> rail = rails[current];
+                    Throwable error = rail.error;
+                    if (error != null) {
+                        cancelled = true;
+                        cancelRails();
+                        clearRails();
+                        s.onError(error);
+                        return;
+                    }
+
+                    boolean done = rail.done;
+                    if (e == r) {
+                        // 요청량은 다 썼지만, 현재 rail이 끝났다면 다음 rail로 넘어가 둔다.
+                        if (done && rail.queue.isEmpty()) {
+                            current++;
+                            continue;
+                        }
+                        break;
+                    }
+
+                    T item = rail.queue.poll();
+                    if (item == null) {
+                        if (done) {
+                            current++;
+                            continue;
+                        }
+                        break;
+                    }
+
+                    s.onNext(item);
+                    e++;
+                    rail.consumed();
+                }
+
+                emitted = e;
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** rail 하나를 구독하면서 받은 값을 자기 큐에 쌓아두는 Subscriber */
+    static final class RailSubscriber<T> implements Subscriber<T> {
+        final OrderedMergeSubscription<T> parent;
+        final SpscArrayQueue<T> queue;
+        final int prefetch;
+        // 이만큼 소모하면 다시 요청한다.
+        final int limit;
+
+        volatile Subscription subscription;
+        volatile boolean done;
+        volatile Throwable error;
+        // 소비자(drain 루프)만 접근
+        int consumed;
+        volatile boolean cancelled;
+
+        RailSubscriber(OrderedMergeSubscription<T> parent, int prefetch) {
+            this.parent = parent;
+            this.queue = new SpscArrayQueue<>(prefetch);
+            this.prefetch = prefetch;
+            this.limit = prefetch - (prefetch >> 2);
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (!queue.offer(item)) {
+                // 요청한 것보다 많이 보낸 경우
+                onError(new IllegalStateException("Rail queue is full, the rail did not respect backpressure"));
+                return;
+            }
+            parent.drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            parent.drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.drain();
+        }
+
+        void consumed() {
+            if (++consumed == limit) {
+                consumed = 0;
+                subscription.request(limit);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+    }
+}
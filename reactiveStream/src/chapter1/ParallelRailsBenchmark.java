@@ -0,0 +1,113 @@
+package chapter1;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * ParallelPublisher로 1억 개의 range에 CPU를 쓰는 map을 적용했을 때, 코어 수(1 ~ N)에 따른 처리량 비교
+ * rails()로 각각 소모하는 경우와 ordered()로 순서대로 받는 경우를 같이 본다.
+ */
+public class ParallelRailsBenchmark {
+    static final int COUNT = 100_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : COUNT;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // 기준값: 한 스레드에서 for 문으로 처리
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            checksum += mix(i);
+        }
+        BenchmarkSupport.report("for loop (checksum " + checksum + ")", count, System.nanoTime() - start);
+
+        for (int parallelism = 1; parallelism <= cores; parallelism = parallelism < cores ? Math.min(parallelism * 2, cores) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            ParallelPublisher<Long> publisher = ParallelPublisher.range(0, count, parallelism, pool)
+                    .map(ParallelRailsBenchmark::mix);
+
+            runRails("rails    x" + parallelism, publisher.rails());
+            runOrdered("ordered  x" + parallelism, publisher.ordered());
+
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /** 원소마다 적당히 CPU를 쓰는 작업 (해시 섞기를 여러 번 반복) */
+    static long mix(int value) {
+        long x = value;
+        for (int i = 0; i < 16; i++) {
+            x ^= x >>> 33;
+            x *= 0xff51afd7ed558ccdL;
+            x ^= x >>> 33;
+            x *= 0xc4ceb9fe1a85ec53L;
+            x ^= x >>> 33;
+        }
+        return x;
+    }
+
+    private static void runRails(String name, List<Publisher<Long>> rails) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(rails.size());
+        AtomicLong received = new AtomicLong();
+        AtomicLong checksum = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (Publisher<Long> rail : rails) {
+            rail.subscribe(new SummingSubscriber() {
+                @Override
+                public void onComplete() {
+                    received.addAndGet(count);
+                    checksum.addAndGet(sum);
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        BenchmarkSupport.report(name + " (checksum " + checksum.get() + ")", received.get(), System.nanoTime() - start);
+    }
+
+    private static void runOrdered(String name, Publisher<Long> publisher) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long[] result = new long[2];
+
+        long start = System.nanoTime();
+        publisher.subscribe(new SummingSubscriber() {
+            @Override
+            public void onComplete() {
+                result[0] = count;
+                result[1] = sum;
+                latch.countDown();
+            }
+        });
+        latch.await();
+        BenchmarkSupport.report(name + " (checksum " + result[1] + ")", result[0], System.nanoTime() - start);
+    }
+
+    abstract static class SummingSubscriber implements Subscriber<Long> {
+        long count;
+        long sum;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Long item) {
+            count++;
+            sum += item;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+    }
+}
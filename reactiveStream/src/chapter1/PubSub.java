@@ -1,7 +1,6 @@
 package chapter1;
 
 import java.util.Arrays;
-import java.util.Iterator;
 
 import static java.util.concurrent.Flow.*;
 
@@ -23,36 +22,12 @@ public class PubSub {
         Iterable<Integer> iter = Arrays.asList(1, 2, 3, 4, 5);
 
         /* Publisher, 데이터를 누구에게 줄 것인지. */
-        Publisher publisher = new Publisher() {
-            @Override
-            public void subscribe(Subscriber subscriber) {
-                // 파라미터에 subscription을 넣어줄 수 있다. (객체를 만들어서 넘겨줌)
-                // 구독이라는 정보를 가지고 있는 객체로, publisher, subscriber가 서로 참고할 수 있음
-                // 둘 사이에서 정보의 속도 차이든, 뭐든 중개자 역할이라고 볼 수 있다.
-                subscriber.onSubscribe(new Subscription() {
-                    // subscribe를 하는 순간에 iterator를 새롭게 하나 생성
-                    Iterator<Integer> iterator = iter.iterator();
-
-                    @Override
-                    public void request(long n) {
-                        // n만큼 동작할 수 있도록 하기 위해서 조건 도입
-                        while(n-- > 0) {
-                            if (iterator.hasNext()) {
-                                subscriber.onNext(iterator.next());
-                            } else {
-                                subscriber.onComplete();
-                                break;
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void cancel() {
-
-                    }
-                });
-            }
-        };
+        // 구독이라는 정보를 가지고 있는 객체(subscription)를 subscriber에게 넘겨준다. (IterablePublisher 참고)
+        // publisher, subscriber가 서로 참고할 수 있고, 둘 사이에서 정보의 속도 차이든, 뭐든 중개자 역할이라고 볼 수 있다.
+        // 기존에는 onNext 안에서 request를 호출하면 request -> onNext -> request ... 로 재귀 호출이 되어
+        // 원소가 많아지면 StackOverflowError가 발생했다. 지금은 안쪽의 request는 요청량만 더해주고 바깥에서 루프를 돈다.
+        // (재귀 방식과의 비교는 PubSubBenchmark 참고)
+        Publisher<Integer> publisher = new IterablePublisher<>(iter);
 
         /* Subscriber */
         Subscriber<Integer> subscriber = new Subscriber<Integer>() {
@@ -84,12 +59,15 @@ public class PubSub {
                 onSubscribe!
                 bufferSize = 1
                 onNext = 2
+                bufferSize = 2
                 bufferSize = 1
                 onNext = 4
+                bufferSize = 2
                 bufferSize = 1
                 onComplete!
-                bufferSize = 1
-                bufferSize = 1
+
+                재귀 호출일 때는 안쪽의 onNext가 먼저 끝나서 bufferSize 출력 순서가 뒤섞였지만,
+                지금은 onNext가 끝난 뒤에 다음 onNext가 호출되기 때문에 순서대로 출력된다.
                  */
             }
 
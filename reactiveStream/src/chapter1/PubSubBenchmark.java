@@ -0,0 +1,126 @@
+package chapter1;
+
+import java.util.Iterator;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * PubSub의 기존 재귀 방식과 IterablePublisher(trampoline)의 비교
+ * subscriber는 PubSub과 동일하게 onNext 안에서 2개씩 다시 request 한다.
+ *
+ * 1. 재귀 방식이 버틸 수 있는 작은 source(1000개)를 반복해서 처리량 비교
+ * 2. 1억 개를 한 번에 흘려보내면서 스택 깊이 확인 (재귀 방식은 StackOverflowError)
+ */
+public class PubSubBenchmark {
+    static final int SMALL = 1_000;
+    static final int REPEAT = 100_000;
+    static final int LARGE = 100_000_000;
+    static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("round " + round);
+            runRepeated("legacy (recursive request)", () -> legacyPublisher(BenchmarkSupport.range(SMALL)));
+            runRepeated("IterablePublisher (trampoline)", () -> new IterablePublisher<>(BenchmarkSupport.range(SMALL)));
+        }
+
+        System.out.println("large source, " + LARGE + " items");
+        runLarge("IterablePublisher (trampoline)", new IterablePublisher<>(BenchmarkSupport.range(LARGE)));
+        runLarge("legacy (recursive request)", legacyPublisher(BenchmarkSupport.range(LARGE)));
+    }
+
+    interface PublisherFactory {
+        Publisher<Integer> create();
+    }
+
+    private static void runRepeated(String name, PublisherFactory factory) {
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < REPEAT; i++) {
+            BufferedSubscriber subscriber = new BufferedSubscriber(false);
+            factory.create().subscribe(subscriber);
+            total += subscriber.count;
+        }
+        BenchmarkSupport.report(name, total, System.nanoTime() - start);
+    }
+
+    private static void runLarge(String name, Publisher<Integer> publisher) {
+        BufferedSubscriber subscriber = new BufferedSubscriber(true);
+        long start = System.nanoTime();
+        try {
+            publisher.subscribe(subscriber);
+            BenchmarkSupport.report(name, subscriber.count, System.nanoTime() - start);
+            System.out.println("    stack depth min = " + subscriber.minDepth + ", max = " + subscriber.maxDepth);
+        } catch (StackOverflowError e) {
+            System.out.println(name + " StackOverflowError after " + subscriber.count + " items");
+        }
+    }
+
+    /** PubSub의 subscriber와 같은 동작, 출력만 빼고 개수와 스택 깊이를 센다. */
+    static class BufferedSubscriber implements Subscriber<Integer> {
+        final boolean sampleDepth;
+        Subscription subscription;
+        int bufferSize = 2;
+        long count;
+        int minDepth = Integer.MAX_VALUE;
+        int maxDepth;
+
+        BufferedSubscriber(boolean sampleDepth) {
+            this.sampleDepth = sampleDepth;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(2);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            // 1000만 개마다 한 번씩 스택 깊이 기록
+            if (sampleDepth && count++ % 10_000_000 == 0) {
+                int depth = Thread.currentThread().getStackTrace().length;
+                minDepth = Math.min(minDepth, depth);
+                maxDepth = Math.max(maxDepth, depth);
+            } else if (!sampleDepth) {
+                count++;
+            }
+            if (--bufferSize <= 0) {
+                bufferSize = 2;
+                subscription.request(2);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /** PubSub에서 사용하던 방식 그대로, request 안에서 바로 onNext를 호출한다. */
+    private static Publisher<Integer> legacyPublisher(Iterable<Integer> iter) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            final Iterator<Integer> iterator = iter.iterator();
+
+            @Override
+            public void request(long n) {
+                while (n-- > 0) {
+                    if (iterator.hasNext()) {
+                        subscriber.onNext(iterator.next());
+                    } else {
+                        subscriber.onComplete();
+                        break;
+                    }
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+    }
+}
@@ -1,7 +1,6 @@
 package chapter1;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -18,50 +17,10 @@ public class PubSubSync {
         ExecutorService es = Executors.newCachedThreadPool();
 
         /* Publisher */
-        Publisher publisher = new Publisher() {
-            @Override
-            public void subscribe(Subscriber subscriber) {
-                subscriber.onSubscribe(new Subscription() {
-                    Iterator<Integer> iterator = iter.iterator();
-
-                    @Override
-                    public void request(long n) {
-                        // Future는 비동기적으로 시작된 작업에 대한 결과 완료 여부, 결과를 제공해준다.
-                        // future의 경우 subscriber가 중간에 작업을 cancel 했을 때 interrupt를 날려줄 수도 있다.
-//                        Future<?> f = es.submit(() -> {
-//                            while(n-- > 0) {
-//                                if (iterator.hasNext()) {
-//                                    // 여기서 무조건 싱글 스레드 보장. 하나의 스레드에서 타고 들어간다.
-//                                    subscriber.onNext(iterator.next());
-//                                } else {
-//                                    subscriber.onComplete();
-//                                    break;
-//                                }
-//                            }
-//                        });
-
-                        // 별도의 스레드에서 실행할 수 있도록 해주기!
-                        es.execute(() -> {
-                            int i = 0;
-                            while(i++ < n) {
-                                if (iterator.hasNext()) {
-                                    // 여기서 무조건 싱글 스레드 보장. 하나의 스레드에서 타고 들어간다.
-                                    subscriber.onNext(iterator.next());
-                                } else {
-                                    subscriber.onComplete();
-                                    break;
-                                }
-                            }
-                        });
-                    }
-
-                    @Override
-                    public void cancel() {
-
-                    }
-                });
-            }
-        };
+        // request 마다 새로운 작업을 던지면 여러 스레드에서 동시에 onNext가 호출될 수 있다.
+        // 요청량을 누적하고 하나의 drain 루프에서만 보내주는 Publisher로 교체 (AsyncIterablePublisher 참고)
+        // 기존 방식과의 처리량 비교는 PubSubSyncBenchmark 참고
+        Publisher<Integer> publisher = new AsyncIterablePublisher<>(iter, es);
 
         /* Subscriber */
         Subscriber<Integer> subscriber = new Subscriber<Integer>() {
@@ -110,14 +69,17 @@ public class PubSubSync {
     onSubscribe!
     pool-1-thread-1
     onNext = 1
-    pool-1-thread-2
+    pool-1-thread-1
     onNext = 2
     pool-1-thread-1
     onNext = 3
-    pool-1-thread-2
+    pool-1-thread-1
     onNext = 4
     pool-1-thread-1
     onNext = 5
     onComplete!
+
+    onNext 안에서 호출한 request(1)은 요청량만 더해주고, 이미 돌고 있는 drain 루프가 이어서 보내준다.
+    그래서 하나의 스레드에서 순서대로 전달된다.
     */
 }
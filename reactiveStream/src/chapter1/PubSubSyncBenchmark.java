@@ -0,0 +1,102 @@
+package chapter1;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * PubSubSync의 기존 방식(request 마다 executor에 작업 제출)과 AsyncIterablePublisher의 처리량 비교
+ * request(1)만 하는 subscriber로 1000만 개를 흘려보낸다.
+ */
+public class PubSubSyncBenchmark {
+    static final int COUNT = 10_000_000;
+    static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : COUNT;
+        ExecutorService es = Executors.newCachedThreadPool();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("round " + round);
+            run("legacy (task per request)", legacyPublisher(BenchmarkSupport.range(count), es));
+            run("AsyncIterablePublisher (drain loop)", new AsyncIterablePublisher<>(BenchmarkSupport.range(count), es));
+        }
+
+        es.shutdown();
+        es.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static void run(String name, Publisher<Integer> publisher) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicLong received = new AtomicLong();
+
+        long start = System.nanoTime();
+        publisher.subscribe(new Subscriber<Integer>() {
+            Subscription subscription;
+            long count;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                count++;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+                received.set(count);
+                latch.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                received.set(count);
+                latch.countDown();
+            }
+        });
+
+        if (!latch.await(5, TimeUnit.MINUTES)) {
+            System.out.println(name + " did not complete");
+            return;
+        }
+        BenchmarkSupport.report(name, received.get(), System.nanoTime() - start);
+    }
+
+    /** PubSubSync에서 사용하던 방식 그대로, request 마다 새로운 작업을 제출한다. */
+    private static Publisher<Integer> legacyPublisher(Iterable<Integer> iter, Executor es) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            final Iterator<Integer> iterator = iter.iterator();
+
+            @Override
+            public void request(long n) {
+                es.execute(() -> {
+                    int i = 0;
+                    while (i++ < n) {
+                        if (iterator.hasNext()) {
+                            subscriber.onNext(iterator.next());
+                        } else {
+                            subscriber.onComplete();
+                            break;
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package chapter1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/** publisher 하나에 대해 진행 중인 구독 수와 cancel 된 구독 수를 세어준다. */
+final class SubscriptionStats {
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder cancelled = new LongAdder();
+
+    void started() {
+        active.incrementAndGet();
+    }
+
+    void terminated(boolean byCancel) {
+        active.decrementAndGet();
+        if (byCancel) {
+            cancelled.increment();
+        }
+    }
+
+    int active() {
+        return active.get();
+    }
+
+    long cancelled() {
+        return cancelled.sum();
+    }
+}
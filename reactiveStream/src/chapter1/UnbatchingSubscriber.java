@@ -0,0 +1,57 @@
+package chapter1;
+
+import static java.util.concurrent.Flow.*;
+
+/**
+ * onNext만 아는 Subscriber를 chunk 모드 publisher에 연결해주는 어댑터
+ * 받은 Chunk를 풀어서 하나씩 onNext로 넘겨준다.
+ * 중간에 cancel 되면 남은 원소는 넘기지 않는다.
+ */
+final class UnbatchingSubscriber<T> implements ChunkSubscriber<T>, Subscription {
+    private final Subscriber<? super T> actual;
+    private Subscription upstream;
+    private volatile boolean cancelled;
+
+    UnbatchingSubscriber(Subscriber<? super T> actual) {
+        this.actual = actual;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.upstream = subscription;
+        actual.onSubscribe(this);
+    }
+
+    @Override
+    public void onNextChunk(Chunk<? extends T> chunk) {
+        for (int i = 0, n = chunk.size(); i < n && !cancelled; i++) {
+            actual.onNext(chunk.get(i));
+        }
+    }
+
+    @Override
+    public void onNext(T item) {
+        actual.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        actual.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        actual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        upstream.cancel();
+    }
+}
@@ -0,0 +1,33 @@
+package chapter2;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/** 전부 요청하고, 받은 값은 Blackhole에 넘겨서 최적화로 사라지지 않게 하는 subscriber */
+final class BlackholeSub<T> implements Subscriber<T> {
+    final Blackhole bh;
+
+    BlackholeSub(Blackhole bh) {
+        this.bh = bh;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(T item) {
+        bh.consume(item);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        throw new IllegalStateException(t);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
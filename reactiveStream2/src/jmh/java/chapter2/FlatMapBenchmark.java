@@ -0,0 +1,99 @@
+package chapter2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * flatMapPub의 maxConcurrency에 따른 처리 시간
+ * upstream 10,000개, 원소마다 inner를 하나씩 만든다.
+ * sync   : inner가 range(v, 10), 구독한 스레드에서 바로 끝난다.
+ * async  : inner가 range(v, 10)을 executor 스레드에서 구독한다. (inner끼리 동시에 값을 보낸다.)
+ * scalar : inner가 justPub(v), 구독 없이 바로 꺼내 쓰는 경로
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlatMapBenchmark {
+    static final int OUTER = 10_000;
+    static final int INNER = 10;
+
+    @Param({"1", "4", "32", "256"})
+    int maxConcurrency;
+
+    @Param({"sync", "async", "scalar"})
+    String inner;
+
+    ExecutorService executor;
+    Publisher<Integer> pipeline;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        Function<Integer, Publisher<Integer>> func;
+        switch (inner) {
+            case "sync":
+                func = v -> GenericPubSub.rangePub(v, INNER);
+                break;
+            case "async":
+                func = v -> sub -> executor.execute(() -> GenericPubSub.rangePub(v, INNER).subscribe(sub));
+                break;
+            case "scalar":
+                func = GenericPubSub::justPub;
+                break;
+            default:
+                throw new IllegalArgumentException(inner);
+        }
+        pipeline = GenericPubSub.flatMapPub(GenericPubSub.rangePub(0, OUTER), func,
+                maxConcurrency, FlatMapPub.DEFAULT_PREFETCH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long flatMap() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long[] count = new long[1];
+        pipeline.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                count[0]++;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+        return count[0];
+    }
+}
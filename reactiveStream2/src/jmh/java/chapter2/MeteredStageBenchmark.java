@@ -0,0 +1,63 @@
+package chapter2;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * meteredPub 한 단계가 원소마다 더하는 시간
+ * plain     : rangePub -> subscriber
+ * off       : meteredPub(..., stage), chapter2.metrics가 꺼져 있으면 publisher를 그대로 돌려받는다.
+ * delegate  : DelegateGenSub 한 단계만 끼운 것 (meter 없이 단계 하나 늘어난 비용)
+ * on        : SimpleMeterRegistry에 기록하는 MeteredSub 한 단계
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(MeteredStageBenchmark.SIZE)
+public class MeteredStageBenchmark {
+    static final int SIZE = 1_000_000;
+
+    Publisher<Integer> plain;
+    Publisher<Integer> off;
+    Publisher<Integer> delegate;
+    Publisher<Integer> on;
+
+    @Setup
+    public void setup() {
+        plain = GenericPubSub.rangePub(0, SIZE);
+        off = GenericPubSub.meteredPub(plain, "range");
+        delegate = sub -> plain.subscribe(new DelegateGenSub<Integer, Integer>(sub));
+        on = GenericPubSub.meteredPub(plain, StageMetrics.of(new SimpleMeterRegistry(), "range"));
+    }
+
+    @Benchmark
+    public void plain(Blackhole bh) {
+        plain.subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void off(Blackhole bh) {
+        off.subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void delegate(Blackhole bh) {
+        delegate.subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void on(Blackhole bh) {
+        on.subscribe(new BlackholeSub<>(bh));
+    }
+}
@@ -0,0 +1,117 @@
+package chapter2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.AbstractList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 순차 reducePub과 parallelReducePub(rail 1, 2, 4, 8개)의 원소당 시간 비교
+ * 원소 100,000,000개, 원소마다 해시를 몇 번 섞어서 더한다. (rail 쪽 계산이 upstream 전달 비용보다 크도록)
+ *
+ * 코어 수보다 rail이 많으면 더 빨라지지 않는다. 결과를 볼 때는 머신의 코어 수를 같이 적어두자.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ParallelReduceBenchmark.SIZE)
+public class ParallelReduceBenchmark {
+    static final int SIZE = 100_000_000;
+
+    @Param({"1", "2", "4", "8"})
+    int rails;
+
+    Publisher<Integer> source;
+    ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        // 원소를 미리 만들어두지 않고 get(i)에서 바로 만들어준다.
+        source = GenericPubSub.iterPub(new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return SIZE;
+            }
+        });
+        executor = Executors.newFixedThreadPool(rails);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /** rails 값과 상관없이 한 스레드에서 계산한다. (비교 기준) */
+    @Benchmark
+    public Long sequential() throws InterruptedException {
+        return await(GenericPubSub.reducePub(source, 0L, (acc, v) -> acc + mix(v)));
+    }
+
+    @Benchmark
+    public Long parallel() throws InterruptedException {
+        return await(GenericPubSub.parallelReducePub(source, () -> 0L, (acc, v) -> acc + mix(v), Long::sum, rails, executor));
+    }
+
+    static long mix(int v) {
+        long h = v;
+        for (int i = 0; i < 4; i++) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+        }
+        return h;
+    }
+
+    static <T> T await(Publisher<T> publisher) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Object[] result = new Object[1];
+        publisher.subscribe(new Subscriber<T>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(T item) {
+                result[0] = item;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result[0] = t;
+                latch.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+        if (result[0] instanceof Throwable) {
+            throw new IllegalStateException((Throwable) result[0]);
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+}
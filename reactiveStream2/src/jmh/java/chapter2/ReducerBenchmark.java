@@ -0,0 +1,86 @@
+package chapter2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reducers의 원소당 시간 / 할당량
+ * 결과는 원소 하나 기준이다. (구독할 때 한 번 만드는 객체들은 원소 수로 나눠지면서 0에 가까워진다.)
+ *
+ * ./gradlew jmh 실행 후 gc.alloc.rate.norm 값을 보면
+ * primitive reducer들은 0 B/op, BiFunction<Integer, Integer, Integer>로 누적하는 boxedReduce는 원소마다 Integer 하나(16 B/op)가 생긴다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ReducerBenchmark.SIZE)
+public class ReducerBenchmark {
+    static final int SIZE = 1_000_000;
+
+    Publisher<Integer> source;
+
+    @Setup
+    public void setup() {
+        // 원소는 미리 박싱해둔다. (source 쪽에서 생기는 할당은 빼고 reduce 경로만 보기 위함)
+        List<Integer> list = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            list.add(i);
+        }
+        source = GenericPubSub.iterPub(list);
+    }
+
+    @Benchmark
+    public void boxedReduce(Blackhole bh) {
+        GenericPubSub.reducePub(source, 0, (a, b) -> a + b).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void sumInt(Blackhole bh) {
+        Reducers.sumInt(source, Integer::intValue).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void sumLong(Blackhole bh) {
+        Reducers.sumLong(source, Integer::longValue).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void sumDouble(Blackhole bh) {
+        Reducers.sumDouble(source, Integer::doubleValue).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void minInt(Blackhole bh) {
+        Reducers.minInt(source, Integer::intValue).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void maxInt(Blackhole bh) {
+        Reducers.maxInt(source, Integer::intValue).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void count(Blackhole bh) {
+        Reducers.count(source).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void collect(Blackhole bh) {
+        Reducers.collect(source, () -> new long[2], (acc, v) -> {
+            acc[0] += v;
+            acc[1]++;
+        }).subscribe(new BlackholeSub<>(bh));
+    }
+}
@@ -0,0 +1,104 @@
+package chapter2;
+
+import io.reactivex.Flowable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 파이프라인을 직접 만든 chapter2 연산자, Reactor Flux, RxJava2 Flowable로 돌려서 비교한다.
+ * 1. range     : range(0, size)를 그대로 소비
+ * 2. mapFilterReduce : range -> map(x * 2) -> filter(x % 3 == 0) -> reduce(0, +)
+ * 3. flatMap   : range -> flatMap(x -> range(x, 2)) -> reduce(0, +)
+ *
+ * 파이프라인 조립부터 구독, 완료까지를 한 op로 본다. (size = 10 이면 조립 / 구독 비용이 크게 보인다.)
+ * ./gradlew jmh -Pjmh.includes=StackComparisonBenchmark 로 실행하면 ops/s와 gc.alloc.rate.norm(B/op)이 같이 나온다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StackComparisonBenchmark {
+    @Param({"10", "1000000"})
+    int size;
+
+    /* range */
+
+    @Benchmark
+    public void rangeHandRolled(Blackhole bh) {
+        GenericPubSub.rangePub(0, size).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void rangeReactor(Blackhole bh) {
+        Flux.range(0, size).subscribe(bh::consume);
+    }
+
+    @Benchmark
+    public void rangeRxJava(Blackhole bh) {
+        Flowable.range(0, size).subscribe(bh::consume);
+    }
+
+    /* map -> filter -> reduce */
+
+    @Benchmark
+    public void mapFilterReduceHandRolled(Blackhole bh) {
+        GenericPubSub.reducePub(
+                GenericPubSub.filterPub(
+                        GenericPubSub.mapPub(GenericPubSub.rangePub(0, size), v -> v * 2),
+                        v -> v % 3 == 0),
+                0, (a, b) -> a + b)
+                .subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void mapFilterReduceReactor(Blackhole bh) {
+        Flux.range(0, size)
+                .map(v -> v * 2)
+                .filter(v -> v % 3 == 0)
+                .reduce(0, (a, b) -> a + b)
+                .subscribe(bh::consume);
+    }
+
+    @Benchmark
+    public void mapFilterReduceRxJava(Blackhole bh) {
+        Flowable.range(0, size)
+                .map(v -> v * 2)
+                .filter(v -> v % 3 == 0)
+                .reduce(0, (a, b) -> a + b)
+                .subscribe(bh::consume);
+    }
+
+    /* flatMap(inner range) -> reduce */
+
+    @Benchmark
+    public void flatMapHandRolled(Blackhole bh) {
+        GenericPubSub.reducePub(
+                GenericPubSub.flatMapPub(GenericPubSub.rangePub(0, size), v -> GenericPubSub.rangePub(v, 2)),
+                0, (a, b) -> a + b)
+                .subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void flatMapReactor(Blackhole bh) {
+        Flux.range(0, size)
+                .flatMap(v -> Flux.range(v, 2))
+                .reduce(0, (a, b) -> a + b)
+                .subscribe(bh::consume);
+    }
+
+    @Benchmark
+    public void flatMapRxJava(Blackhole bh) {
+        Flowable.range(0, size)
+                .flatMap(v -> Flowable.range(v, 2))
+                .reduce(0, (a, b) -> a + b)
+                .subscribe(bh::consume);
+    }
+}
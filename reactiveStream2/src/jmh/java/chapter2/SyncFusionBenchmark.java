@@ -0,0 +1,80 @@
+package chapter2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * iterPub -> mapPub -> filterPub -> reducePub 파이프라인의 원소당 시간
+ * forLoop : 같은 계산을 for 문으로 (기준)
+ * fused   : reducePub이 poll로 리스트를 직접 꺼내가는 동기 fusion
+ * fusedPrimitive : 같은 fusion에 누적값까지 long으로 (Reducers.sumLong)
+ * pushOnly: source를 DelegateGenSub 한 단계로 감싸서 fusion을 막은 push 방식 (단계마다 onNext)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SyncFusionBenchmark.SIZE)
+public class SyncFusionBenchmark {
+    static final int SIZE = 1_000_000;
+
+    List<Integer> list;
+    Publisher<Integer> source;
+    Publisher<Integer> pushOnlySource;
+
+    @Setup
+    public void setup() {
+        list = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            list.add(i);
+        }
+        source = GenericPubSub.iterPub(list);
+        pushOnlySource = sub -> source.subscribe(new DelegateGenSub<Integer, Integer>(sub));
+    }
+
+    @Benchmark
+    public long forLoop() {
+        long sum = 0;
+        for (Integer v : list) {
+            int x = v * 3;
+            if ((x & 1) == 0) {
+                sum += x;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void fused(Blackhole bh) {
+        pipeline(source).subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void fusedPrimitive(Blackhole bh) {
+        Reducers.sumLong(GenericPubSub.filterPub(GenericPubSub.mapPub(source, v -> v * 3), v -> (v & 1) == 0),
+                Integer::longValue)
+                .subscribe(new BlackholeSub<>(bh));
+    }
+
+    @Benchmark
+    public void pushOnly(Blackhole bh) {
+        pipeline(pushOnlySource).subscribe(new BlackholeSub<>(bh));
+    }
+
+    static Publisher<Long> pipeline(Publisher<Integer> source) {
+        return GenericPubSub.reducePub(
+                GenericPubSub.filterPub(GenericPubSub.mapPub(source, v -> v * 3), v -> (v & 1) == 0),
+                0L, (acc, v) -> acc + v);
+    }
+}
@@ -0,0 +1,184 @@
+package chapter2;
+
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * System.out.println(getCurrentThread() + ...) 대신 쓰는 비동기 log
+ *
+ * 1. 호출한 스레드는 문자열을 만들지 않고 (스레드 이름, 메시지, 값) 참조만 고정 크기 ring buffer의 슬롯에 적고 바로 돌아간다.
+ * 2. 슬롯은 CAS로 자리를 잡기 때문에 lock이 없다. (Vyukov bounded queue 방식, 슬롯마다 sequence를 둔다.)
+ * 3. 문자열 조립과 System.out 출력은 "async-log" 스레드 하나가 모아서 한 번에 한다. (PrintStream lock도 그 스레드만 잡는다.)
+ * 4. buffer가 가득 차면 기다리지 않고 버린 뒤 개수만 세어둔다. (호출한 스레드를 막지 않는 것이 우선이다.)
+ * 5. 출력할 것이 없으면 drain 스레드는 1ms씩 IDLE_PARKS 번 기다려 보고, 그래도 없으면 timeout 없이 park 한다.
+ *    잠든 동안에는 log를 남긴 스레드가 깨운다. (SLEEPING) 그래서 쉬는 JVM에서는 깨어나지 않고,
+ *    log가 이어지는 동안에는 log를 남기는 스레드가 unpark(system call)를 거의 부르지 않는다.
+ *
+ * 값(arg)은 출력될 때 toString()이 호출되므로, 나중에 바뀌는 가변 객체보다는 불변 값을 넘기는 것이 좋다.
+ */
+public final class AsyncLog {
+    static final int CAPACITY = 1 << 14;
+    static final int MASK = CAPACITY - 1;
+    // 출력할 것이 없을 때 잠들기 전에 1ms씩 기다려 보는 횟수 (100ms)
+    static final int IDLE_PARKS = 100;
+
+    // 슬롯별 sequence, 값이 pos면 비어 있고 pos + 1이면 읽을 수 있다.
+    static final AtomicLongArray SEQUENCE = new AtomicLongArray(CAPACITY);
+    static final String[] THREADS = new String[CAPACITY];
+    static final String[] MESSAGES = new String[CAPACITY];
+    static final Object[] ARGS = new Object[CAPACITY];
+
+    static final AtomicLong TAIL = new AtomicLong();
+    static final AtomicLong DROPPED = new AtomicLong();
+    // drain 스레드만 쓴다.
+    static volatile long head;
+    // drain 스레드가 park 하려는 중인지, 켠 쪽은 drain 스레드이고 끄고 깨우는 쪽은 log를 남긴 스레드이다.
+    static final AtomicBoolean SLEEPING = new AtomicBoolean();
+    static final Thread DRAINER = new Thread(AsyncLog::drainLoop, "async-log");
+
+    static final Object NO_ARG = new Object();
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            SEQUENCE.lazySet(i, i);
+        }
+        DRAINER.setDaemon(true);
+        DRAINER.start();
+        // main이 끝날 때 남아있는 log를 마저 출력한다.
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLog::flush, "async-log-flush"));
+    }
+
+    private AsyncLog() {
+    }
+
+    /** "[스레드] message" 를 남긴다. */
+    public static void log(String message) {
+        offer(message, NO_ARG);
+    }
+
+    /** "[스레드] message + arg" 를 남긴다. arg.toString()은 drain 스레드에서 호출된다. */
+    public static void log(String message, Object arg) {
+        offer(message, arg);
+    }
+
+    /** sampleEvery 번 중 한 번 꼴로만 남긴다. (onNext처럼 자주 불리는 곳) */
+    public static void sample(String message, Object arg, int sampleEvery) {
+        if (sampleEvery <= 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0) {
+            offer(message, arg);
+        }
+    }
+
+    /** doOnNext, subscribe 등에 넘겨서 쓰는 log용 Consumer, "[스레드] prefix + 값" 을 남긴다. */
+    public static Consumer<Object> tap(String prefix) {
+        return tap(prefix, 1);
+    }
+
+    /** sampleEvery 번 중 한 번 꼴로만 남기는 tap */
+    public static Consumer<Object> tap(String prefix, int sampleEvery) {
+        return v -> sample(prefix, v, sampleEvery);
+    }
+
+    /** buffer가 가득 차서 버려진 log 수 */
+    public static long dropped() {
+        return DROPPED.get();
+    }
+
+    /** 지금까지 남긴 log가 모두 출력될 때까지 기다린다. (최대 1초) */
+    public static void flush() {
+        long target = TAIL.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (head < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    static void offer(String message, Object arg) {
+        String thread = Thread.currentThread().getName();
+        for (;;) {
+            long pos = TAIL.get();
+            int index = (int) pos & MASK;
+            long seq = SEQUENCE.get(index);
+            if (seq == pos) {
+                if (TAIL.compareAndSet(pos, pos + 1)) {
+                    THREADS[index] = thread;
+                    MESSAGES[index] = message;
+                    ARGS[index] = arg;
+                    // 내용을 다 적은 뒤에 읽을 수 있다고 표시한다.
+                    // lazySet이 아닌 set이어야 아래 SLEEPING을 읽기 전에 drain 스레드에게 보인다. (깨우기를 놓치지 않는다.)
+                    SEQUENCE.set(index, pos + 1);
+                    if (SLEEPING.get() && SLEEPING.compareAndSet(true, false)) {
+                        LockSupport.unpark(DRAINER);
+                    }
+                    return;
+                }
+            } else if (seq < pos) {
+                // drain 스레드가 아직 한 바퀴 전 슬롯을 비우지 못했다. (가득 참)
+                DROPPED.incrementAndGet();
+                return;
+            }
+            // 다른 스레드가 먼저 자리를 잡았다면 다시 시도한다.
+        }
+    }
+
+    static void drainLoop() {
+        StringBuilder sb = new StringBuilder(4096);
+        long reportedDropped = 0L;
+        int idle = 0;
+        for (;;) {
+            long pos = head;
+            int n = 0;
+            for (;;) {
+                int index = (int) pos & MASK;
+                if (SEQUENCE.get(index) != pos + 1) {
+                    break;
+                }
+                sb.append('[').append(THREADS[index]).append("] ").append(MESSAGES[index]);
+                Object arg = ARGS[index];
+                if (arg != NO_ARG) {
+                    sb.append(arg);
+                }
+                sb.append(System.lineSeparator());
+                THREADS[index] = null;
+                MESSAGES[index] = null;
+                ARGS[index] = null;
+                SEQUENCE.lazySet(index, pos + CAPACITY);
+                pos++;
+                // 한 번에 너무 큰 문자열을 만들지 않도록 나눠서 출력한다.
+                if (++n == 1024) {
+                    break;
+                }
+            }
+            long dropped = DROPPED.get();
+            if (dropped != reportedDropped) {
+                sb.append("[async-log] dropped ").append(dropped - reportedDropped).append(System.lineSeparator());
+                reportedDropped = dropped;
+            }
+            if (sb.length() != 0) {
+                PrintStream out = System.out;
+                out.print(sb);
+                out.flush();
+                sb.setLength(0);
+            }
+            head = pos;
+            if (n != 0) {
+                idle = 0;
+            } else if (++idle < IDLE_PARKS) {
+                LockSupport.parkNanos(1_000_000L);
+            } else {
+                idle = 0;
+                SLEEPING.set(true);
+                // SLEEPING을 켠 뒤에 한 번 더 확인해야 그 사이에 남긴 log를 놓치지 않는다.
+                if (SEQUENCE.get((int) pos & MASK) != pos + 1) {
+                    LockSupport.park();
+                }
+                SLEEPING.set(false);
+            }
+        }
+    }
+}
@@ -12,7 +12,8 @@ public class DelegateGenSub<T, R> implements Subscriber<T> {
 
     @Override
     public void onSubscribe(Subscription s) {
-        sub.onSubscribe(s);
+        // 이 단계를 건너뛰고 upstream을 직접 poll 하지 않도록 fusion은 막아둔다.
+        sub.onSubscribe(FuseableSubscription.hide(s));
     }
 
     @Override
@@ -11,7 +11,8 @@ public class DelegateSub implements Subscriber<Integer> {
 
     @Override
     public void onSubscribe(Subscription s) {
-        sub.onSubscribe(s);
+        // 이 단계를 건너뛰고 upstream을 직접 poll 하지 않도록 fusion은 막아둔다.
+        sub.onSubscribe(FuseableSubscription.hide(s));
     }
 
     @Override
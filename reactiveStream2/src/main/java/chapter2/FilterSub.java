@@ -0,0 +1,66 @@
+package chapter2;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.function.Predicate;
+
+/**
+ * filterPub의 subscriber
+ * 걸러낸 원소만큼은 upstream에 다시 요청해서, downstream이 요청한 개수가 모자라지 않도록 한다.
+ * upstream이 동기 fusion을 지원하면, downstream이 poll 할 때 조건을 만족하는 원소가 나올 때까지 꺼내서 돌려준다.
+ */
+final class FilterSub<T> extends DelegateGenSub<T, T> implements FuseableSubscription<T> {
+    final Predicate<T> predicate;
+    Subscription upstream;
+    FuseableSubscription<T> qs;
+
+    FilterSub(Subscriber<? super T> sub, Predicate<T> predicate) {
+        super(sub);
+        this.predicate = predicate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onSubscribe(Subscription s) {
+        upstream = s;
+        if (s instanceof FuseableSubscription) {
+            qs = (FuseableSubscription<T>) s;
+        }
+        sub.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (predicate.test(item)) {
+            sub.onNext(item);
+        } else {
+            upstream.request(1);
+        }
+    }
+
+    @Override
+    public void request(long n) {
+        upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        upstream.cancel();
+    }
+
+    @Override
+    public int requestFusion(int mode) {
+        return qs == null ? NONE : qs.requestFusion(mode);
+    }
+
+    @Override
+    public T poll() {
+        for (;;) {
+            T item = qs.poll();
+            if (item == null || predicate.test(item)) {
+                return item;
+            }
+        }
+    }
+}
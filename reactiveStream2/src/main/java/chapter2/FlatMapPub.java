@@ -0,0 +1,521 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 원소마다 만든 inner publisher들을 동시에 구독해서 하나로 합쳐주는 flatMapPub
+ *
+ * 1. 동시에 구독하는 inner는 최대 maxConcurrency 개, upstream에는 그만큼만 요청하고 inner가 끝날 때마다 더 요청한다.
+ * 2. inner마다 prefetch 크기의 SPSC 큐를 가지고, 하나의 drain 루프(wip)가 downstream 요청량만큼 돌아가면서 꺼내서 보낸다.
+ *    inner에게는 prefetch 만큼 요청하고, 3/4를 소비할 때마다 다시 채워준다.
+ * 3. drain 루프가 돌고 있지 않고 큐가 비어 있다면 큐를 거치지 않고 바로 downstream에 넘긴다.
+ * 4. inner가 JustPub이면 구독하지 않고 값을 바로 보내거나, 하나의 scalar 큐에 넣어둔다.
+ *
+ * inner들의 값은 도착한 순서대로 섞여서 나간다. 에러는 하나라도 나면 나머지를 모두 cancel 하고 바로 전달한다.
+ */
+final class FlatMapPub<T, R> implements Publisher<R> {
+    static final int DEFAULT_MAX_CONCURRENCY = 256;
+    static final int DEFAULT_PREFETCH = 32;
+
+    final Publisher<T> source;
+    final Function<? super T, ? extends Publisher<? extends R>> mapper;
+    final int maxConcurrency;
+    final int prefetch;
+
+    FlatMapPub(Publisher<T> source, Function<? super T, ? extends Publisher<? extends R>> mapper,
+               int maxConcurrency, int prefetch) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency > 0 required but it was " + maxConcurrency);
+        }
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        this.source = Objects.requireNonNull(source, "source");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+        this.maxConcurrency = maxConcurrency;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> sub) {
+        source.subscribe(new MergeSub<>(sub, mapper, maxConcurrency, prefetch));
+    }
+
+    static final class MergeSub<T, R> implements Subscriber<T>, Subscription {
+        @SuppressWarnings("rawtypes")
+        static final InnerSub[] EMPTY = new InnerSub[0];
+        @SuppressWarnings("rawtypes")
+        static final InnerSub[] CANCELLED = new InnerSub[0];
+
+        final Subscriber<? super R> downstream;
+        final Function<? super T, ? extends Publisher<? extends R>> mapper;
+        final int maxConcurrency;
+        final int prefetch;
+        // upstream에 다시 요청하는 단위
+        final int limit;
+
+        @SuppressWarnings("unchecked")
+        final AtomicReference<InnerSub<R>[]> inners = new AtomicReference<>(EMPTY);
+        final AtomicLong requested = new AtomicLong();
+        final AtomicInteger wip = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Subscription upstream;
+        // upstream 스레드에서 처음 scalar가 왔을 때 만든다.
+        volatile SpscArrayQueue<R> scalarQueue;
+
+        // wip를 잡은 스레드에서만 접근한다.
+        int lastIndex;
+        long consumed;
+
+        volatile boolean done;
+        volatile boolean cancelled;
+
+        MergeSub(Subscriber<? super R> downstream, Function<? super T, ? extends Publisher<? extends R>> mapper,
+                 int maxConcurrency, int prefetch) {
+            this.downstream = downstream;
+            this.mapper = mapper;
+            this.maxConcurrency = maxConcurrency;
+            this.prefetch = prefetch;
+            this.limit = Math.max(1, maxConcurrency - (maxConcurrency >> 2));
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            downstream.onSubscribe(this);
+            s.request(maxConcurrency);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onNext(T item) {
+            if (done) {
+                return;
+            }
+            Publisher<? extends R> p;
+            try {
+                p = Objects.requireNonNull(mapper.apply(item), "The mapper returned a null Publisher");
+            } catch (Throwable t) {
+                upstream.cancel();
+                onError(t);
+                return;
+            }
+            if (p instanceof JustPub) {
+                emitScalar(((JustPub<R>) p).value);
+                return;
+            }
+            InnerSub<R> inner = new InnerSub<>(this, prefetch);
+            if (add(inner)) {
+                p.subscribe(inner);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                return;
+            }
+            error.compareAndSet(null, t);
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // 규약 3.9
+                error.compareAndSet(null, new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+            } else {
+                for (;;) {
+                    long r = requested.get();
+                    long u = r + n;
+                    if (u < 0L) {
+                        u = Long.MAX_VALUE;
+                    }
+                    if (requested.compareAndSet(r, u)) {
+                        break;
+                    }
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            upstream.cancel();
+            cancelInners();
+            // drain 루프가 돌고 있지 않다면 큐를 직접 비워준다.
+            if (wip.getAndIncrement() == 0) {
+                clearScalars();
+            }
+        }
+
+        /** scalar 값, 큐를 거치지 않고 보낼 수 있다면 바로 보낸다. */
+        void emitScalar(R value) {
+            if (wip.get() == 0 && wip.compareAndSet(0, 1)) {
+                long r = requested.get();
+                SpscArrayQueue<R> q = scalarQueue;
+                if (r != 0L && (q == null || q.isEmpty())) {
+                    downstream.onNext(value);
+                    if (r != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    replenish(1);
+                } else if (!scalarQueue().offer(value)) {
+                    overflow();
+                }
+                if (wip.decrementAndGet() == 0) {
+                    return;
+                }
+            } else {
+                if (!scalarQueue().offer(value)) {
+                    overflow();
+                }
+                if (wip.getAndIncrement() != 0) {
+                    return;
+                }
+            }
+            drainLoop();
+        }
+
+        /** inner의 값, 큐를 거치지 않고 보낼 수 있다면 바로 보낸다. */
+        void emitInner(InnerSub<R> inner, R value) {
+            if (wip.get() == 0 && wip.compareAndSet(0, 1)) {
+                long r = requested.get();
+                if (r != 0L && inner.queue.isEmpty()) {
+                    downstream.onNext(value);
+                    if (r != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    inner.requestOne();
+                } else if (!inner.queue.offer(value)) {
+                    inner.cancel();
+                    overflow();
+                }
+                if (wip.decrementAndGet() == 0) {
+                    return;
+                }
+            } else {
+                if (!inner.queue.offer(value)) {
+                    inner.cancel();
+                    overflow();
+                }
+                if (wip.getAndIncrement() != 0) {
+                    return;
+                }
+            }
+            drainLoop();
+        }
+
+        void innerError(Throwable t) {
+            error.compareAndSet(null, t);
+            done = true;
+            drain();
+        }
+
+        SpscArrayQueue<R> scalarQueue() {
+            SpscArrayQueue<R> q = scalarQueue;
+            if (q == null) {
+                q = new SpscArrayQueue<>(maxConcurrency);
+                scalarQueue = q;
+            }
+            return q;
+        }
+
+        void overflow() {
+            // 요청한 것보다 많이 보냈다는 뜻이므로 규약 위반으로 보고 에러로 끝낸다.
+            error.compareAndSet(null, new IllegalStateException("Queue is full: more items arrived than were requested"));
+            done = true;
+        }
+
+        /** upstream 원소 n개를 다 썼다면 limit 단위로 모아서 다시 요청한다. */
+        void replenish(long n) {
+            long c = consumed + n;
+            if (c >= limit) {
+                consumed = 0;
+                upstream.request(c);
+            } else {
+                consumed = c;
+            }
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() == 0) {
+                drainLoop();
+            }
+        }
+
+        void drainLoop() {
+            int missed = 1;
+            final Subscriber<? super R> a = downstream;
+
+            for (;;) {
+                if (checkTerminated()) {
+                    return;
+                }
+                long r = requested.get();
+                long e = 0L;
+
+                SpscArrayQueue<R> sq = scalarQueue;
+                if (sq != null) {
+                    while (e != r) {
+                        R v = sq.poll();
+                        if (v == null) {
+                            break;
+                        }
+                        a.onNext(v);
+                        e++;
+                        replenish(1);
+                        if (cancelled) {
+                            clearScalars();
+                            return;
+                        }
+                    }
+                }
+
+                boolean d = done;
+                sq = scalarQueue;
+                InnerSub<R>[] as = inners.get();
+                int n = as.length;
+
+                if (d && n == 0 && (sq == null || sq.isEmpty())) {
+                    if (checkTerminated()) {
+                        return;
+                    }
+                    cancelled = true;
+                    a.onComplete();
+                    return;
+                }
+
+                boolean innerCompleted = false;
+                if (n != 0) {
+                    int j = lastIndex;
+                    if (j >= n) {
+                        j = 0;
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if (checkTerminated()) {
+                            return;
+                        }
+                        InnerSub<R> inner = as[j];
+                        SpscArrayQueue<R> q = inner.queue;
+                        while (e != r) {
+                            R v = q.poll();
+                            if (v == null) {
+                                break;
+                            }
+                            a.onNext(v);
+                            e++;
+                            inner.requestOne();
+                            if (cancelled) {
+                                return;
+                            }
+                        }
+                        // 요청량이 모자라도 끝난 inner는 정리해서 다음 inner를 받을 자리를 만든다.
+                        if (inner.done && q.isEmpty()) {
+                            remove(inner);
+                            innerCompleted = true;
+                            replenish(1);
+                        }
+                        if (++j == n) {
+                            j = 0;
+                        }
+                    }
+                    lastIndex = j;
+                }
+
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+                // 끝난 inner가 있었다면 완료 조건을 다시 확인한다.
+                if (innerCompleted) {
+                    continue;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /** cancel 되었거나 에러가 있다면 정리하고 true */
+        boolean checkTerminated() {
+            if (cancelled) {
+                clearScalars();
+                return true;
+            }
+            Throwable t = error.get();
+            if (t != null) {
+                cancelled = true;
+                upstream.cancel();
+                cancelInners();
+                clearScalars();
+                downstream.onError(t);
+                return true;
+            }
+            return false;
+        }
+
+        void clearScalars() {
+            SpscArrayQueue<R> q = scalarQueue;
+            if (q != null) {
+                q.clear();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void cancelInners() {
+            for (InnerSub<R> inner : inners.getAndSet(CANCELLED)) {
+                inner.cancel();
+            }
+        }
+
+        boolean add(InnerSub<R> inner) {
+            for (;;) {
+                InnerSub<R>[] current = inners.get();
+                if (current == CANCELLED) {
+                    inner.cancel();
+                    return false;
+                }
+                int n = current.length;
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                InnerSub<R>[] next = new InnerSub[n + 1];
+                System.arraycopy(current, 0, next, 0, n);
+                next[n] = inner;
+                if (inners.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void remove(InnerSub<R> inner) {
+            for (;;) {
+                InnerSub<R>[] current = inners.get();
+                int n = current.length;
+                if (current == CANCELLED || n == 0) {
+                    return;
+                }
+                int index = -1;
+                for (int i = 0; i < n; i++) {
+                    if (current[i] == inner) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    return;
+                }
+                InnerSub<R>[] next;
+                if (n == 1) {
+                    next = EMPTY;
+                } else {
+                    next = new InnerSub[n - 1];
+                    System.arraycopy(current, 0, next, 0, index);
+                    System.arraycopy(current, index + 1, next, index, n - index - 1);
+                }
+                if (inners.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** inner publisher 하나의 구독, 받은 값은 자기 큐에 넣어두고 drain 루프가 꺼내간다. */
+    static final class InnerSub<R> implements Subscriber<R> {
+        static final Subscription CANCELLED = new Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+
+        final MergeSub<?, R> parent;
+        final int prefetch;
+        final int limit;
+        final SpscArrayQueue<R> queue;
+        final AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+        // wip를 잡은 스레드에서만 접근한다.
+        long produced;
+
+        volatile boolean done;
+
+        InnerSub(MergeSub<?, R> parent, int prefetch) {
+            this.parent = parent;
+            this.prefetch = prefetch;
+            this.limit = Math.max(1, prefetch - (prefetch >> 2));
+            this.queue = new SpscArrayQueue<>(prefetch);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (!subscription.compareAndSet(null, s)) {
+                // 이미 cancel 되었다.
+                s.cancel();
+                return;
+            }
+            s.request(prefetch);
+        }
+
+        @Override
+        public void onNext(R item) {
+            parent.emitInner(this, item);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true;
+            parent.innerError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            parent.drain();
+        }
+
+        /** 하나를 소비했다. limit 만큼 모이면 다시 요청한다. */
+        void requestOne() {
+            long p = produced + 1;
+            if (p == limit) {
+                produced = 0;
+                subscription.get().request(p);
+            } else {
+                produced = p;
+            }
+        }
+
+        void cancel() {
+            Subscription s = subscription.getAndSet(CANCELLED);
+            if (s != null && s != CANCELLED) {
+                s.cancel();
+            }
+        }
+    }
+}
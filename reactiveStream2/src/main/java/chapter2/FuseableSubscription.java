@@ -0,0 +1,44 @@
+package chapter2;
+
+import org.reactivestreams.Subscription;
+
+/**
+ * 동기 fusion을 지원하는 Subscription (Reactor의 QueueSubscription 방식)
+ *
+ * 마지막 consumer가 requestFusion(SYNC)로 합의하면, request / onNext 대신 poll()로 원소를 직접 꺼내간다.
+ * poll()이 null을 돌려주면 source가 끝난 것이다. (onComplete 대신)
+ * 중간 단계(map, filter)는 poll 안에서 자기 연산을 적용해서 돌려주기 때문에, 단계마다 onNext를 거치지 않는다.
+ *
+ * poll은 fusion을 요청한 consumer 스레드에서만 호출한다.
+ */
+interface FuseableSubscription<T> extends Subscription {
+    int NONE = 0;
+    int SYNC = 1;
+
+    /** @return 합의된 모드, 지원하지 않는다면 NONE */
+    int requestFusion(int mode);
+
+    /** 다음 원소, 더 이상 없다면 null */
+    T poll();
+
+    /**
+     * fusion을 지원하는 subscription을 감싸서 평범한 Subscription으로 넘겨준다.
+     * onNext에서 값을 바꾸는 단계가 upstream subscription을 그대로 넘기면, downstream이 그 단계를 건너뛰고 poll 할 수 있기 때문이다.
+     */
+    static Subscription hide(Subscription s) {
+        if (!(s instanceof FuseableSubscription)) {
+            return s;
+        }
+        return new Subscription() {
+            @Override
+            public void request(long n) {
+                s.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                s.cancel();
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package chapter2;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * reduce처럼 원소를 전부 받아야 끝나는 마지막 단계의 subscriber
+ * downstream에게 나가는 값은 하나뿐이므로, downstream이 몇 개를 요청하든 첫 request에서 upstream을 끝까지 받아온다.
+ *
+ * upstream이 동기 fusion(SYNC)을 지원하면 request / onNext 대신 poll로 전부 꺼내면서 자기 onNext / onComplete를 직접 호출한다.
+ * 지원하지 않으면 upstream에 Long.MAX_VALUE 만큼 요청해서 push 방식으로 받는다.
+ */
+class FusingSub<T, R> extends DelegateGenSub<T, R> {
+    FusingSub(Subscriber<? super R> sub) {
+        super(sub);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onSubscribe(Subscription s) {
+        FuseableSubscription<T> qs = null;
+        if (s instanceof FuseableSubscription) {
+            FuseableSubscription<T> candidate = (FuseableSubscription<T>) s;
+            if (candidate.requestFusion(FuseableSubscription.SYNC) == FuseableSubscription.SYNC) {
+                qs = candidate;
+            }
+        }
+        sub.onSubscribe(new AllSubscription<>(s, qs, this));
+    }
+
+    /** downstream에게 넘겨주는 Subscription, 첫 request에서 upstream 전체를 요청하거나 poll로 꺼내온다. */
+    static final class AllSubscription<T> implements Subscription {
+        final Subscription upstream;
+        // fusion이 된 경우에만 존재한다.
+        final FuseableSubscription<T> qs;
+        final Subscriber<T> owner;
+        boolean started;
+        volatile boolean cancelled;
+
+        AllSubscription(Subscription upstream, FuseableSubscription<T> qs, Subscriber<T> owner) {
+            this.upstream = upstream;
+            this.qs = qs;
+            this.owner = owner;
+        }
+
+        @Override
+        public void request(long n) {
+            if (started || cancelled) {
+                return;
+            }
+            started = true;
+            if (n <= 0) {
+                // 규약 3.9
+                cancel();
+                owner.onError(new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+                return;
+            }
+            if (qs == null) {
+                upstream.request(Long.MAX_VALUE);
+                return;
+            }
+            final FuseableSubscription<T> q = qs;
+            try {
+                T item;
+                while ((item = q.poll()) != null) {
+                    if (cancelled) {
+                        return;
+                    }
+                    owner.onNext(item);
+                }
+            } catch (Throwable t) {
+                cancel();
+                owner.onError(t);
+                return;
+            }
+            if (!cancelled) {
+                owner.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            upstream.cancel();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * mapPub 체인 깊이(1 ~ 16)에 따른 원소당 처리 시간 비교
+ * before : 단계마다 DelegateGenSub를 하나씩 만드는 기존 방식
+ * after  : MapPub으로 합쳐진 방식 (map은 합성 함수 하나, map + reduce는 하나의 subscriber)
+ *
+ * 인자로 원소 개수를 바꿀 수 있다. (기본 1,000,000개)
+ */
+public class FusionBenchmark {
+    static final int[] DEPTHS = {1, 2, 4, 8, 16};
+    static final int WARMUP = 5;
+    static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Integer> source = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            source.add(i);
+        }
+        Publisher<Integer> publisher = GenericPubSub.iterPub(source);
+
+        System.out.printf("%-12s %5s %12s %12s%n", "chain", "depth", "before ns/op", "after ns/op");
+        for (int depth : DEPTHS) {
+            Publisher<Integer> before = publisher;
+            Publisher<Integer> after = publisher;
+            for (int i = 0; i < depth; i++) {
+                before = delegateMapPub(before, v -> v + 1);
+                after = GenericPubSub.mapPub(after, v -> v + 1);
+            }
+            report("map", depth, count, before, after);
+            report("map+reduce", depth, count,
+                    delegateReducePub(before, 0L, (a, b) -> a + b),
+                    GenericPubSub.reducePub(after, 0L, (a, b) -> a + b));
+        }
+    }
+
+    static <T> void report(String name, int depth, int count, Publisher<T> before, Publisher<T> after) {
+        Object expected = run(before);
+        Object actual = run(after);
+        if (!expected.equals(actual)) {
+            throw new AssertionError(name + " x" + depth + " : " + expected + " != " + actual);
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            run(before);
+            run(after);
+        }
+        long beforeNanos = 0;
+        long afterNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            run(before);
+            beforeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            run(after);
+            afterNanos += System.nanoTime() - start;
+        }
+        double ops = (double) count * ROUNDS;
+        System.out.printf("%-12s %5d %12.2f %12.2f%n", name, depth, beforeNanos / ops, afterNanos / ops);
+    }
+
+    /** 마지막으로 받은 값을 돌려준다. (결과가 버려져서 최적화로 사라지지 않도록) */
+    static <T> Object run(Publisher<T> publisher) {
+        Object[] last = new Object[1];
+        publisher.subscribe(new Subscriber<T>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(T item) {
+                last[0] = item;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new IllegalStateException(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return last[0];
+    }
+
+    /** 합치기 전의 mapPub - 단계마다 subscriber를 하나씩 만든다. */
+    static <T, R> Publisher<R> delegateMapPub(Publisher<T> publisher, Function<T, R> func) {
+        return sub -> publisher.subscribe(new DelegateGenSub<T, R>(sub) {
+            @Override
+            public void onNext(T item) {
+                sub.onNext(func.apply(item));
+            }
+        });
+    }
+
+    /** 합치기 전의 reducePub */
+    static <T, R> Publisher<R> delegateReducePub(Publisher<T> publisher, R start, BiFunction<R, T, R> biFunc) {
+        return sub -> publisher.subscribe(new DelegateGenSub<T, R>(sub) {
+            R result = start;
+
+            @Override
+            public void onNext(T item) {
+                result = biFunc.apply(result, item);
+            }
+
+            @Override
+            public void onComplete() {
+                sub.onNext(result);
+                sub.onComplete();
+            }
+        });
+    }
+}
@@ -4,9 +4,16 @@ import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -26,6 +33,9 @@ public class GenericPubSub {
         Publisher<StringBuilder> reducePub = reducePub(publisher, new StringBuilder(),
                 (a, b) -> a.append(b).append(","));
 
+        // 3개마다 지금까지의 합을 내보내고, 끝나면 마지막 합을 한 번 더 내보낸다. (3, 6, 9, ... 끝없는 stream에도 사용 가능)
+//        Publisher<Integer> windowPub = reducePub(publisher, 0, (a, b) -> a + b, 3);
+
 
         reducePub.subscribe(logSub());
         /*
@@ -53,100 +63,168 @@ public class GenericPubSub {
     }
 
     /** 이전의 계산값을 활용하여 합을 구하는 publisher를 생성해준다. */
-    private static<T, R> Publisher<R> reducePub(Publisher<T> publisher, R start, BiFunction<R, T, R> biFunc) {
-        return sub -> {
-            publisher.subscribe(new DelegateGenSub<T, R>(sub) {
-                R result = start;
-
-                @Override
-                public void onNext(T integer) {
-                    result = biFunc.apply(result, integer);
-                }
-
-                @Override
-                public void onComplete() {
-                    sub.onNext(result);
-                    sub.onComplete();
-                }
-            });
-        };
+    /** 앞 단계가 mapPub이라면 map과 reduce를 하나의 subscriber로 합쳐서 계산한다. */
+    static<T, R> Publisher<R> reducePub(Publisher<T> publisher, R start, BiFunction<R, T, R> biFunc) {
+        return MapPub.reduce(publisher, start, biFunc);
     }
 
-    /** 데이터의 합을 구하는 publisher를 생성해준다. */
-    private static <T, R> Publisher<R> sumPub(Publisher<T> publisher) {
-        return sub -> publisher.subscribe(new DelegateGenSub<T, R>(sub) {
-            int sum = 0;
+    /**
+     * reducePub을 rails 개의 스레드에서 나눠서 계산한다. (ParallelReducePub 참고)
+     * 각 rail은 start가 만든 값부터 biFunc로 누적하고, 마지막에 combiner로 합쳐진다. combiner는 결합 법칙이 성립해야 한다.
+     * start는 구독마다 rail 수만큼 불린다. (rail마다 따로 시작값을 가진다.)
+     * 앞 단계가 mapPub이라면 map도 rail 쪽에서 같이 계산한다.
+     */
+    @SuppressWarnings("unchecked")
+    static<T, R> Publisher<R> parallelReducePub(Publisher<T> publisher, Supplier<R> start, BiFunction<R, T, R> biFunc,
+                                                BinaryOperator<R> combiner, int rails, Executor executor) {
+        if (publisher instanceof MapPub) {
+            MapPub<Object, T> prev = (MapPub<Object, T>) publisher;
+            Function<Object, ? extends T> before = prev.mapper;
+            return new ParallelReducePub<Object, R>(prev.source, start, (acc, v) -> biFunc.apply(acc, before.apply(v)),
+                    combiner, rails, executor);
+        }
+        return new ParallelReducePub<>(publisher, start, biFunc, combiner, rails, executor);
+    }
 
-            @Override
-            public void onNext(T integer) {
-                sum += (int) integer;
-            }
+    /** 완료를 기다리지 않고 count개마다 지금까지의 누적값을 내보낸다. (WindowReducePub 참고) */
+    static<T, R> Publisher<R> reducePub(Publisher<T> publisher, R start, BiFunction<R, T, R> biFunc, int count) {
+        return WindowReducePub.everyCount(publisher, start, biFunc, count);
+    }
 
-            @Override
-            public void onComplete() {
-                // subscriber에게 합을 건네주기
-                sub.onNext(sum);
-                sub.onComplete();
-            }
-        });
+    /** 완료를 기다리지 않고 period마다 지금까지의 누적값을 내보낸다. (WindowReducePub 참고) */
+    static<T, R> Publisher<R> reducePub(Publisher<T> publisher, R start, BiFunction<R, T, R> biFunc,
+                                        long period, TimeUnit unit, ScheduledExecutorService timer) {
+        return WindowReducePub.everyPeriod(publisher, start, biFunc, period, unit, timer);
+    }
+
+    /** 데이터의 합을 구하는 publisher를 생성해준다. */
+    /** 캐스팅 / 박싱 없이 int로 더하고, 합계만 마지막에 한 번 넘겨준다. (Reducers 참고) */
+    static <T extends Number> Publisher<Integer> sumPub(Publisher<T> publisher) {
+        return Reducers.sumInt(publisher, Number::intValue);
     }
 
     /** 데이터를 가공해주는 publisher를 만들어준다. */
     /** 이때, input과 return type이 다른 상황에서 제네릭하게 받을 수 있도록 해보자.*/
-    private static <T, R> Publisher<R> mapPub(Publisher<T> publisher, Function<T, R> func) {
-        return sub -> publisher.subscribe(new DelegateGenSub<T, R>(sub) {
-            @Override
-            public void onNext(T integer) {
-                sub.onNext(func.apply(integer));
-            }
-        });
+    /** 연속된 mapPub은 subscriber를 겹겹이 만들지 않고, 하나의 합성 함수로 합쳐진다. */
+    static <T, R> Publisher<R> mapPub(Publisher<T> publisher, Function<T, R> func) {
+        return MapPub.map(publisher, func);
+    }
+
+    /** 조건을 만족하는 데이터만 넘겨주는 publisher를 만들어준다. */
+    /** 걸러낸 원소만큼은 upstream에 다시 요청해서, downstream이 요청한 개수가 모자라지 않도록 한다. */
+    static <T> Publisher<T> filterPub(Publisher<T> publisher, Predicate<T> predicate) {
+        return sub -> publisher.subscribe(new FilterSub<>(sub, predicate));
+    }
+
+    /**
+     * 원소마다 publisher를 만들어서, 그 안의 데이터를 펼쳐서 넘겨준다.
+     * inner는 최대 256개까지 동시에 구독하고, inner마다 32개씩 미리 받아둔다. (FlatMapPub 참고)
+     */
+    static <T, R> Publisher<R> flatMapPub(Publisher<T> publisher, Function<T, Publisher<R>> func) {
+        return flatMapPub(publisher, func, FlatMapPub.DEFAULT_MAX_CONCURRENCY, FlatMapPub.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * 동시에 구독하는 inner 수를 maxConcurrency로 제한하는 flatMapPub
+     * inner마다 prefetch 크기의 큐를 두고, 하나의 drain 루프가 downstream 요청량만큼 합쳐서 보내준다.
+     * inner가 justPub이라면 구독 없이 값을 바로 꺼내서 쓴다.
+     */
+    static <T, R> Publisher<R> flatMapPub(Publisher<T> publisher, Function<T, Publisher<R>> func,
+                                          int maxConcurrency, int prefetch) {
+        return new FlatMapPub<>(publisher, func, maxConcurrency, prefetch);
     }
 
     /** log를 찍어주는 subscriber이다. */
-    private static<T> Subscriber<T> logSub() {
+    /** System.out에 바로 쓰지 않고 AsyncLog에 남기기 때문에, 신호를 보낸 스레드는 출력을 기다리지 않는다. */
+    static<T> Subscriber<T> logSub() {
         return new Subscriber<T>() {
             @Override
             public void onSubscribe(Subscription s) {
-                System.out.println("onSubscribe!");
+                AsyncLog.log("onSubscribe!");
                 s.request(Long.MAX_VALUE);
             }
 
             @Override
             public void onNext(T integer) {
-                System.out.println("onNext = " + integer);
+                AsyncLog.log("onNext = ", integer);
             }
 
             @Override
             public void onError(Throwable t) {
-                System.out.println("onError = " + t);
+                AsyncLog.log("onError = ", t);
             }
 
             @Override
             public void onComplete() {
-                System.out.println("onComplete!");
+                AsyncLog.log("onComplete!");
             }
         };
     }
 
+    /**
+     * 신호는 그대로 흘려보내면서 중간에 log만 남기는 publisher (doOnNext로 log 찍는 것과 같은 용도)
+     * onNext는 sampleEvery 번 중 한 번 꼴로만 남긴다. (1이면 전부)
+     */
+    static<T> Publisher<T> tapPub(Publisher<T> publisher, String prefix, int sampleEvery) {
+        return sub -> publisher.subscribe(new DelegateGenSub<T, T>(sub) {
+            @Override
+            public void onNext(T item) {
+                AsyncLog.sample(prefix, item, sampleEvery);
+                super.onNext(item);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                AsyncLog.log(prefix + "onError = ", t);
+                super.onError(t);
+            }
+
+            @Override
+            public void onComplete() {
+                AsyncLog.log(prefix + "onComplete!");
+                super.onComplete();
+            }
+        });
+    }
+
+    /**
+     * 앞 단계와 뒷 단계 사이의 신호를 stage 이름으로 Micrometer 전역 registry에 기록한다. (MeteredSub, StageMetrics 참고)
+     * -Dchapter2.metrics=true 가 아니라면 publisher를 그대로 돌려주기 때문에 끼워둬도 비용이 없다.
+     */
+    static<T> Publisher<T> meteredPub(Publisher<T> publisher, String stage) {
+        StageMetrics metrics = StageMetrics.global(stage);
+        return metrics == null ? publisher : meteredPub(publisher, metrics);
+    }
+
+    /** 지정한 StageMetrics에 기록한다. (StageMetrics.of(registry, stage)) */
+    static<T> Publisher<T> meteredPub(Publisher<T> publisher, StageMetrics metrics) {
+        return sub -> publisher.subscribe(new MeteredSub<>(sub, metrics));
+    }
+
     /** 가장 윗단계의 Publisher다. */
-    private static<T> Publisher<T> iterPub(List<T> iter) {
-        return sub -> {
-            sub.onSubscribe(new Subscription() {
-                @Override
-                public void request(long n) {
-                    try {
-                        iter.forEach(sub::onNext);
-                        sub.onComplete();
-                    } catch (Throwable t) {
-                        sub.onError(t);
-                    }
-                }
-
-                @Override
-                public void cancel() {
-                }
-            });
-        };
+    /** 요청받은 개수만큼만 보내고, cancel 되면 멈춘다. (ListSubscription 참고) */
+    static<T> Publisher<T> iterPub(List<T> iter) {
+        return sub -> sub.onSubscribe(new ListSubscription<>(sub, iter));
+    }
+
+    /** 값 하나만 보내고 끝나는 publisher */
+    static<T> Publisher<T> justPub(T value) {
+        return new JustPub<>(value);
+    }
+
+    /** start부터 count개의 정수를 보내주는 publisher, 리스트를 미리 만들지 않는다. */
+    static Publisher<Integer> rangePub(int start, int count) {
+        return iterPub(new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return start + index;
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        });
     }
 
 }
@@ -0,0 +1,93 @@
+package chapter2;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * iterPub 스트레스 테스트
+ * request(1)만 하는 subscriber가 50,000,000개를 하나씩 받아가는 동안
+ * 1. 요청한 것보다 많이 받지 않는지
+ * 2. onNext 안에서 계속 request 해도 스택이 쌓이지 않는지
+ * 3. 힙 사용량이 원소 개수와 상관없이 일정한지 확인한다.
+ *
+ * 원소는 미리 만들어두지 않고 get(i)에서 바로 만들어주기 때문에, 힙을 작게 잡아도 (-Xmx32m) 끝까지 돌아야 한다.
+ * 인자로 원소 개수를 바꿀 수 있다.
+ */
+public class IterPubStress {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        List<Integer> source = new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+
+        Runtime runtime = Runtime.getRuntime();
+        long[] maxUsed = {0};
+        long[] received = {0};
+        boolean[] completed = {false};
+        long start = System.nanoTime();
+
+        GenericPubSub.iterPub(source).subscribe(new Subscriber<Integer>() {
+            Subscription subscription;
+            long outstanding;
+            int maxDepth;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                outstanding = 1;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                if (--outstanding < 0) {
+                    throw new IllegalStateException("requested 보다 많이 받았다. item = " + item);
+                }
+                if (item != received[0]) {
+                    throw new IllegalStateException("순서가 맞지 않는다. expected = " + received[0] + ", item = " + item);
+                }
+                received[0]++;
+                if ((received[0] & 0xFFFFF) == 0) {
+                    maxUsed[0] = Math.max(maxUsed[0], runtime.totalMemory() - runtime.freeMemory());
+                    maxDepth = Math.max(maxDepth, Thread.currentThread().getStackTrace().length);
+                }
+                outstanding++;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                t.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+                completed[0] = true;
+                System.out.println("max stack depth = " + maxDepth);
+            }
+        });
+
+        long elapsed = System.nanoTime() - start;
+        if (!completed[0] || received[0] != count) {
+            throw new IllegalStateException("received = " + received[0] + ", completed = " + completed[0]);
+        }
+        System.out.printf("received %,d items in %,d ms (%.1f ns/item), max used heap %,d KB (max heap %,d KB)%n",
+                received[0], elapsed / 1_000_000, (double) elapsed / count, maxUsed[0] / 1024, runtime.maxMemory() / 1024);
+        /*
+        결과) -Xmx32m
+        max stack depth = 8
+        received 50,000,000 items in 2,257 ms (45.2 ns/item), max used heap 8,715 KB (max heap 31,680 KB)
+         */
+    }
+}
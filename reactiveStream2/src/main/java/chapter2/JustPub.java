@@ -0,0 +1,47 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * 값 하나만 보내고 끝나는 Publisher
+ * flatMapPub은 inner가 JustPub이면 구독하지 않고 값을 바로 꺼내서 쓴다. (큐와 inner subscriber를 만들지 않는다.)
+ */
+final class JustPub<T> implements Publisher<T> {
+    final T value;
+
+    JustPub(T value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        this.value = value;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> sub) {
+        sub.onSubscribe(new Subscription() {
+            boolean done;
+
+            @Override
+            public void request(long n) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (n <= 0) {
+                    // 규약 3.9
+                    sub.onError(new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+                    return;
+                }
+                sub.onNext(value);
+                sub.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package chapter2;
+
+import org.reactivestreams.Subscriber;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * iterPub이 사용하는 Subscription
+ * 리스트의 위치(index)와 남은 요청량을 가지고, 요청받은 개수만큼만 보내준다.
+ *
+ * 요청량이 0에서 늘어난 쪽만 전송 루프를 돌리기 때문에, onNext 안에서 다시 request를 호출하면
+ * 재귀로 들어가지 않고 요청량만 더해진 뒤 이미 돌고 있는 루프가 이어서 보내준다.
+ *
+ * 동기 fusion(SYNC)을 요청받으면 request / onNext 대신 poll()로 리스트를 직접 꺼내갈 수 있다.
+ */
+final class ListSubscription<T> implements FuseableSubscription<T> {
+    final Subscriber<? super T> sub;
+    final List<T> list;
+
+    // 아직 보내지 않은 요청량, 0이 아니라면 전송 루프가 돌고 있다.
+    final AtomicLong requested = new AtomicLong();
+
+    // 전송 루프(또는 fusion 된 경우 poll)에서만 접근한다.
+    int index;
+
+    volatile boolean cancelled;
+    // 잘못된 request(n), 전송 루프에서 onError로 전달한다.
+    volatile Throwable badRequest;
+
+    ListSubscription(Subscriber<? super T> sub, List<T> list) {
+        this.sub = sub;
+        this.list = list;
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // 규약 3.9 - 0 이하의 요청은 onError로 알려줘야 한다.
+            badRequest = new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n);
+            n = 1;
+        }
+        for (;;) {
+            long r = requested.get();
+            long u = r + n;
+            if (u < 0L) {
+                u = Long.MAX_VALUE;
+            }
+            if (requested.compareAndSet(r, u)) {
+                if (r == 0L) {
+                    drain();
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int requestFusion(int mode) {
+        return mode & SYNC;
+    }
+
+    @Override
+    public T poll() {
+        int i = index;
+        if (i == list.size()) {
+            return null;
+        }
+        index = i + 1;
+        return list.get(i);
+    }
+
+    @Override
+    public void cancel() {
+        // 돌고 있는 루프는 다음 원소를 보내기 전에 멈춘다.
+        cancelled = true;
+    }
+
+    void drain() {
+        final int size = list.size();
+        int i = index;
+        long e = 0L;
+
+        for (;;) {
+            long r = requested.get();
+
+            while (e != r) {
+                if (cancelled) {
+                    return;
+                }
+                Throwable bad = badRequest;
+                if (bad != null) {
+                    cancelled = true;
+                    sub.onError(bad);
+                    return;
+                }
+                if (i == size) {
+                    cancelled = true;
+                    sub.onComplete();
+                    return;
+                }
+                try {
+                    sub.onNext(list.get(i++));
+                } catch (Throwable t) {
+                    cancelled = true;
+                    sub.onError(t);
+                    return;
+                }
+                e++;
+            }
+
+            if (cancelled) {
+                return;
+            }
+            // 요청량을 다 채운 시점에 리스트도 끝났다면, 다음 request를 기다리지 않고 완료 처리
+            if (i == size) {
+                cancelled = true;
+                sub.onComplete();
+                return;
+            }
+
+            index = i;
+            r = requested.addAndGet(-e);
+            if (r == 0L) {
+                return;
+            }
+            e = 0L;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 조립 시점에 합쳐지는 map Publisher
+ *
+ * mapPub을 k번 연결하면 원래는 DelegateGenSub가 k개 생기고 onNext도 k번 건너가야 한다.
+ * 이미 MapPub인 publisher에 다시 map을 걸면 새 단계를 만들지 않고 함수를 합성해서 원본 publisher에 바로 붙인다.
+ * 뒤에 reducePub이 오면 map과 reduce를 하나의 subscriber로 합쳐서 접어준다.
+ * source가 동기 fusion을 지원하면 onNext 대신 poll 안에서 map을 적용한다.
+ */
+final class MapPub<T, R> implements Publisher<R> {
+    final Publisher<T> source;
+    final Function<? super T, ? extends R> mapper;
+
+    private MapPub(Publisher<T> source, Function<? super T, ? extends R> mapper) {
+        this.source = source;
+        this.mapper = mapper;
+    }
+
+    /** 앞 단계가 MapPub이라면 함수만 합성해서 하나의 MapPub으로 만들어준다. */
+    @SuppressWarnings("unchecked")
+    static <T, R> Publisher<R> map(Publisher<T> publisher, Function<? super T, ? extends R> func) {
+        if (publisher instanceof MapPub) {
+            MapPub<Object, T> prev = (MapPub<Object, T>) publisher;
+            Function<Object, ? extends T> before = prev.mapper;
+            return new MapPub<Object, R>(prev.source, v -> func.apply(before.apply(v)));
+        }
+        return new MapPub<>(publisher, func);
+    }
+
+    /** 앞 단계가 MapPub이라면 map과 reduce를 하나의 subscriber로 합쳐준다. */
+    @SuppressWarnings("unchecked")
+    static <T, A> Publisher<A> reduce(Publisher<T> publisher, A start, BiFunction<A, ? super T, A> biFunc) {
+        if (publisher instanceof MapPub) {
+            return ((MapPub<?, T>) publisher).fold(start, biFunc);
+        }
+        return sub -> publisher.subscribe(new FusingSub<T, A>(sub) {
+            A result = start;
+
+            @Override
+            public void onNext(T item) {
+                result = biFunc.apply(result, item);
+            }
+
+            @Override
+            public void onComplete() {
+                sub.onNext(result);
+                sub.onComplete();
+            }
+        });
+    }
+
+    private <A> Publisher<A> fold(A start, BiFunction<A, ? super R, A> biFunc) {
+        return sub -> source.subscribe(new FusingSub<T, A>(sub) {
+            A result = start;
+
+            @Override
+            public void onNext(T item) {
+                result = biFunc.apply(result, mapper.apply(item));
+            }
+
+            @Override
+            public void onComplete() {
+                sub.onNext(result);
+                sub.onComplete();
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> sub) {
+        source.subscribe(new MapSub<>(sub, mapper));
+    }
+
+    /** upstream이 동기 fusion을 지원하면, downstream이 poll 할 때 map을 적용해서 돌려준다. */
+    static final class MapSub<T, R> extends DelegateGenSub<T, R> implements FuseableSubscription<R> {
+        final Function<? super T, ? extends R> mapper;
+        Subscription upstream;
+        FuseableSubscription<T> qs;
+
+        MapSub(Subscriber<? super R> sub, Function<? super T, ? extends R> mapper) {
+            super(sub);
+            this.mapper = mapper;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            if (s instanceof FuseableSubscription) {
+                qs = (FuseableSubscription<T>) s;
+            }
+            sub.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T item) {
+            sub.onNext(mapper.apply(item));
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+
+        @Override
+        public int requestFusion(int mode) {
+            return qs == null ? NONE : qs.requestFusion(mode);
+        }
+
+        @Override
+        public R poll() {
+            T item = qs.poll();
+            return item == null ? null : mapper.apply(item);
+        }
+    }
+}
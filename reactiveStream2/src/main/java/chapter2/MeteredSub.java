@@ -0,0 +1,129 @@
+package chapter2;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 신호를 그대로 넘기면서 StageMetrics에 기록하는 DelegateGenSub
+ * 두 단계 사이에 끼워두면 어느 단계에서 요청(demand)이 막히는지 볼 수 있다. (GenericPubSub.meteredPub 참고)
+ *
+ * 1. onNext 수는 원소마다 meter를 건드리지 않고 지역 변수에 모았다가 BATCH개마다, 그리고 종료 시에 한 번에 더한다.
+ * 2. 남은 요청량도 같은 batch 단위로 뺀다. Long.MAX_VALUE를 요청한 구독은 남은 요청량 집계에서 빠진다.
+ * 3. downstream에서 cancel 하면 마지막 batch(최대 BATCH - 1개)는 onNext 수에 들어가지 않을 수 있다.
+ *    (cancel은 다른 스레드에서 올 수 있어서, onNext 스레드가 쓰는 지역 카운터를 건드리지 않는다.)
+ */
+final class MeteredSub<T> extends DelegateGenSub<T, T> implements Subscription {
+    static final int BATCH = 1024;
+
+    final StageMetrics metrics;
+    // 이 구독이 gauge에 더해둔 남은 요청량
+    final AtomicLong demand = new AtomicLong();
+    final AtomicBoolean finished = new AtomicBoolean();
+
+    Subscription upstream;
+    long subscribedAt;
+    // 아래 값은 onNext를 부르는 스레드만 쓴다.
+    boolean seenFirst;
+    int pendingNext;
+    volatile boolean unbounded;
+
+    MeteredSub(Subscriber<? super T> sub, StageMetrics metrics) {
+        super(sub);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        upstream = s;
+        subscribedAt = System.nanoTime();
+        // this는 FuseableSubscription이 아니므로 fusion도 여기서 막힌다.
+        sub.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (!seenFirst) {
+            seenFirst = true;
+            metrics.firstItem.record(System.nanoTime() - subscribedAt, TimeUnit.NANOSECONDS);
+        }
+        if (++pendingNext == BATCH) {
+            flushNext();
+        }
+        sub.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (finished.compareAndSet(false, true)) {
+            metrics.errors.increment();
+            flushNext();
+            releaseDemand();
+        }
+        sub.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        if (finished.compareAndSet(false, true)) {
+            metrics.completion.record(System.nanoTime() - subscribedAt, TimeUnit.NANOSECONDS);
+            flushNext();
+            releaseDemand();
+        }
+        sub.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n > 0 && !finished.get()) {
+            if (n == Long.MAX_VALUE) {
+                metrics.unboundedRequests.increment();
+                if (!unbounded) {
+                    unbounded = true;
+                    releaseDemand();
+                }
+            } else {
+                metrics.requested.increment(n);
+                if (!unbounded) {
+                    demand.addAndGet(n);
+                    metrics.demand.addAndGet(n);
+                }
+            }
+        }
+        upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        if (finished.compareAndSet(false, true)) {
+            metrics.cancelled.increment();
+            releaseDemand();
+        }
+        upstream.cancel();
+    }
+
+    void flushNext() {
+        int n = pendingNext;
+        if (n == 0) {
+            return;
+        }
+        pendingNext = 0;
+        metrics.onNext.increment(n);
+        // 이미 끝났다면 releaseDemand가 남은 양을 한 번에 뺐거나 뺄 것이다.
+        if (!unbounded && !finished.get()) {
+            demand.addAndGet(-n);
+            metrics.demand.addAndGet(-n);
+        }
+    }
+
+    /** 이 구독이 gauge에 남겨둔 요청량을 빼준다. */
+    void releaseDemand() {
+        long d = demand.getAndSet(0L);
+        if (d != 0L) {
+            metrics.demand.addAndGet(-d);
+        }
+    }
+}
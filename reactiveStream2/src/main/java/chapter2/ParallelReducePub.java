@@ -0,0 +1,320 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 여러 rail에서 나눠서 누적하는 reducePub
+ *
+ * 1. upstream에서 받은 원소를 batchSize 개씩 묶어서 rail에 돌아가면서(round-robin) 넘겨준다.
+ * 2. rail마다 자기 누적값을 가지고, executor 위에서 각자 accumulator로 접어간다.
+ * 3. upstream이 끝나면 마지막으로 끝난 rail이 rail 순서대로 combiner로 합쳐서 한 번만 내보낸다.
+ *
+ * 그래서 combiner는 결합 법칙이 성립해야 하고, seed가 만든 값은 모든 rail의 시작값이 되므로 combiner의 항등원이어야 한다. (합계라면 0)
+ * seed는 구독마다 rail 수만큼 불리므로, 가변 객체(List, StringBuilder 등)를 시작값으로 써도 rail, 구독끼리 섞이지 않는다.
+ * rail마다 원소가 섞여서 들어가기 때문에, 순서에 따라 결과가 달라지는 연산(문자열 이어붙이기 등)이라면 순차 reducePub을 써야 한다.
+ *
+ * upstream에는 처음에 rail 수 * queueSize * batchSize 만큼만 요청하고, rail이 batch를 하나 꺼낼 때마다 batchSize 만큼 더 요청한다.
+ * 그래서 upstream이 보낸 원소는 항상 rail 큐에 자리가 있고, upstream 스레드는 기다리지 않는다. (메모리도 그만큼으로 제한된다.)
+ */
+final class ParallelReducePub<T, R> implements Publisher<R> {
+    static final int DEFAULT_BATCH_SIZE = 256;
+    static final int DEFAULT_QUEUE_SIZE = 16;
+
+    final Publisher<T> source;
+    final Supplier<R> seed;
+    final BiFunction<R, ? super T, R> accumulator;
+    final BinaryOperator<R> combiner;
+    final int rails;
+    final Executor executor;
+
+    ParallelReducePub(Publisher<T> source, Supplier<R> seed, BiFunction<R, ? super T, R> accumulator,
+                      BinaryOperator<R> combiner, int rails, Executor executor) {
+        if (rails <= 0) {
+            throw new IllegalArgumentException("rails > 0 required but it was " + rails);
+        }
+        this.source = Objects.requireNonNull(source, "source");
+        this.seed = Objects.requireNonNull(seed, "seed");
+        this.accumulator = Objects.requireNonNull(accumulator, "accumulator");
+        this.combiner = Objects.requireNonNull(combiner, "combiner");
+        this.rails = rails;
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> sub) {
+        source.subscribe(new Dispatcher<>(sub, this));
+    }
+
+    /** upstream 원소를 rail에 나눠주고, rail들의 결과를 모아서 downstream에 넘겨준다. */
+    static final class Dispatcher<T, R> implements Subscriber<T>, Subscription {
+        final Subscriber<? super R> downstream;
+        final BinaryOperator<R> combiner;
+        final Rail<T, R>[] rails;
+        final Object[] partials;
+        final AtomicInteger remaining;
+        final AtomicBoolean requestedUpstream = new AtomicBoolean();
+        // rail 스레드들과 request가 같이 요청하므로, 쌓아두고 한 스레드씩 upstream.request를 부른다. (규약 2.7)
+        final AtomicLong credits = new AtomicLong();
+        final AtomicInteger requestWip = new AtomicInteger();
+        // onNext / onError / onComplete 중 하나만 downstream에 나가도록
+        final AtomicBoolean terminated = new AtomicBoolean();
+
+        Subscription upstream;
+
+        // upstream 스레드에서만 접근한다.
+        Object[] batch = new Object[DEFAULT_BATCH_SIZE];
+        int batchCount;
+        int nextRail;
+
+        volatile boolean cancelled;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Dispatcher(Subscriber<? super R> downstream, ParallelReducePub<T, R> parent) {
+            this.downstream = downstream;
+            this.combiner = parent.combiner;
+            int n = parent.rails;
+            this.rails = new Rail[n];
+            for (int i = 0; i < n; i++) {
+                rails[i] = new Rail<>(this, i, parent.seed.get(), parent.accumulator, parent.executor);
+            }
+            this.partials = new Object[n];
+            this.remaining = new AtomicInteger(n);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (cancelled) {
+                return;
+            }
+            Object[] b = batch;
+            b[batchCount++] = item;
+            if (batchCount == b.length) {
+                dispatch(b);
+                batch = new Object[DEFAULT_BATCH_SIZE];
+                batchCount = 0;
+            }
+        }
+
+        /**
+         * 다음 rail부터 돌아가면서 자리가 있는 rail에 넘겨준다.
+         * 요청한 양이 rail 큐 전체 크기를 넘지 않으므로, 자리가 없다면 upstream이 요청보다 많이 보낸 것이다.
+         */
+        void dispatch(Object[] b) {
+            final Rail<T, R>[] rs = rails;
+            int n = rs.length;
+            int i = nextRail;
+            for (int k = 0; k < n; k++) {
+                Rail<T, R> rail = rs[i];
+                if (++i == n) {
+                    i = 0;
+                }
+                if (rail.queue.offer(b)) {
+                    nextRail = i;
+                    rail.schedule();
+                    return;
+                }
+            }
+            upstream.cancel();
+            onError(new IllegalStateException("§1.1 violated: upstream emitted more than requested"));
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (terminated.compareAndSet(false, true)) {
+                cancelRails();
+                downstream.onError(t);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (batchCount != 0) {
+                // 덜 찬 batch는 뒤쪽이 null로 남아 있고, rail은 null을 만나면 그 batch를 끝낸다.
+                dispatch(batch);
+                batch = null;
+                batchCount = 0;
+            }
+            for (Rail<T, R> rail : rails) {
+                rail.done = true;
+                rail.schedule();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // 규약 3.9
+                upstream.cancel();
+                onError(new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+                return;
+            }
+            // 결과는 하나뿐이라 downstream의 요청량과 상관없이, rail 큐가 받을 수 있는 만큼 요청한다.
+            if (requestedUpstream.compareAndSet(false, true)) {
+                requestUpstream((long) rails.length * DEFAULT_QUEUE_SIZE * DEFAULT_BATCH_SIZE);
+            }
+        }
+
+        /** rail이 batch를 꺼낸 만큼 다시 요청한다. 여러 rail에서 불려도 upstream.request는 한 번에 하나씩 나간다. */
+        void requestUpstream(long n) {
+            credits.addAndGet(n);
+            if (requestWip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                long c = credits.getAndSet(0L);
+                if (c != 0L && !cancelled) {
+                    upstream.request(c);
+                }
+                missed = requestWip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (terminated.compareAndSet(false, true)) {
+                upstream.cancel();
+                cancelRails();
+            }
+        }
+
+        void cancelRails() {
+            cancelled = true;
+            for (Rail<T, R> rail : rails) {
+                rail.schedule();
+            }
+        }
+
+        void railError(Throwable t) {
+            if (terminated.compareAndSet(false, true)) {
+                upstream.cancel();
+                cancelRails();
+                downstream.onError(t);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void railDone(int index, R partial) {
+            partials[index] = partial;
+            if (remaining.decrementAndGet() != 0) {
+                return;
+            }
+            // 마지막으로 끝난 rail에서 rail 순서대로 합쳐준다.
+            R result;
+            try {
+                result = (R) partials[0];
+                for (int i = 1; i < partials.length; i++) {
+                    result = combiner.apply(result, (R) partials[i]);
+                }
+            } catch (Throwable t) {
+                railError(t);
+                return;
+            }
+            if (terminated.compareAndSet(false, true)) {
+                downstream.onNext(result);
+                downstream.onComplete();
+            }
+        }
+    }
+
+    /** 자기 큐의 batch를 꺼내서 자기 누적값에 접어가는 rail 하나 */
+    static final class Rail<T, R> implements Runnable {
+        final Dispatcher<T, R> parent;
+        final int index;
+        final BiFunction<R, ? super T, R> accumulator;
+        final Executor executor;
+        final SpscArrayQueue<Object[]> queue = new SpscArrayQueue<>(DEFAULT_QUEUE_SIZE);
+        final AtomicInteger wip = new AtomicInteger();
+
+        // drain 루프에서만 접근한다.
+        R result;
+        boolean finished;
+
+        volatile boolean done;
+
+        Rail(Dispatcher<T, R> parent, int index, R seed, BiFunction<R, ? super T, R> accumulator, Executor executor) {
+            this.parent = parent;
+            this.index = index;
+            this.result = seed;
+            this.accumulator = accumulator;
+            this.executor = executor;
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            int missed = 1;
+            final SpscArrayQueue<Object[]> q = queue;
+
+            for (;;) {
+                if (finished) {
+                    return;
+                }
+                for (;;) {
+                    if (parent.cancelled) {
+                        q.clear();
+                        finished = true;
+                        return;
+                    }
+                    boolean d = done;
+                    Object[] b = q.poll();
+                    if (b == null) {
+                        if (d) {
+                            finished = true;
+                            parent.railDone(index, result);
+                            return;
+                        }
+                        break;
+                    }
+                    R acc = result;
+                    try {
+                        for (Object item : b) {
+                            if (item == null) {
+                                break;
+                            }
+                            acc = accumulator.apply(acc, (T) item);
+                        }
+                    } catch (Throwable t) {
+                        finished = true;
+                        parent.railError(t);
+                        return;
+                    }
+                    result = acc;
+                    // 큐에 자리가 났으므로 그만큼 더 받는다.
+                    parent.requestUpstream(DEFAULT_BATCH_SIZE);
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -5,8 +5,8 @@ import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
 import java.util.List;
-import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -42,32 +42,19 @@ public class PubSub {
     }
 
     /** 이전의 계산값을 활용하여 합을 구하는 publisher를 생성해준다. */
-    private static Publisher<Integer> reducePub(Publisher<Integer> publisher, int start, BiFunction<Integer, Integer, Integer> biFunc) {
-        return sub -> {
-            publisher.subscribe(new DelegateSub(sub) {
-                int result = start;
-                @Override
-                public void onNext(Integer integer) {
-                    // apply의 두 가지 파라미터
-                    // 첫 번째는 현재의 계산값, 두 번째는 계산할 때 사용될 값.
-                    // 현재 수식이 (a, b) -> a+b니까, result+i의 값이 새롭게 계산되어 다음의 start로 들어오게 되는 것.
-                    result = biFunc.apply(result, integer);
-                }
-
-                @Override
-                public void onComplete() {
-                    // 마지막에 전달.
-                    sub.onNext(result);
-                    sub.onComplete();
-                    /*
-                    결과)
-                    onSubscribe!
-                    onNext = 550
-                    onComplete!
-                     */
-                }
-            });
-        };
+    /** 누적값은 int 그대로 들고 있다가 완료 시점에 한 번만 넘겨준다. (원소마다 Integer를 새로 만들지 않도록) */
+    private static Publisher<Integer> reducePub(Publisher<Integer> publisher, int start, IntBinaryOperator biFunc) {
+        // applyAsInt의 두 가지 파라미터
+        // 첫 번째는 현재의 계산값, 두 번째는 계산할 때 사용될 값.
+        // 현재 수식이 (a, b) -> a+b니까, result+i의 값이 새롭게 계산되어 다음의 start로 들어오게 되는 것.
+        // 앞 단계가 mapPub이라면 map과 합쳐서 하나의 subscriber로 계산한다.
+        /*
+        결과)
+        onSubscribe!
+        onNext = 550
+        onComplete!
+         */
+        return Reducers.reduceInt(publisher, start, Integer::intValue, biFunc);
     }
 
     /** 데이터의 합을 구하는 publisher를 생성해준다. */
@@ -97,19 +84,9 @@ public class PubSub {
     }
 
     /** 데이터를 가공해주는 publisher를 만들어준다. */
+    /** mapPub을 여러 번 연결해도 함수만 합성되고, 중간 subscriber는 하나로 합쳐진다. (MapPub 참고) */
     private static Publisher<Integer> mapPub(Publisher<Integer> publisher, Function<Integer, Integer> func) {
-        return new Publisher<Integer>() {
-            @Override
-            public void subscribe(Subscriber<? super Integer> sub) {
-                // 여기서 sub는 logSub
-                publisher.subscribe(new DelegateSub(sub) {
-                    @Override
-                    public void onNext(Integer integer) {
-                        sub.onNext(func.apply(integer));
-                    }
-                });
-            }
-        };
+        return MapPub.map(publisher, func);
     }
 
     /** log를 찍어주는 subscriber이다. */
@@ -146,27 +123,10 @@ public class PubSub {
             public void subscribe(Subscriber<? super Integer> sub) {
                 // subscribe에게 구독 정보 (subscription) 던져주기
                 // 구독이 일어났을 때의 행위를 정의한다고 생각하기
-                sub.onSubscribe(new Subscription() {
-                    @Override
-                    public void request(long n) {
-                        try {
-                            // subscriber에게 iter에 있는 값을 순회하면서 하나씩 보내주기.
-                            iter.forEach(sub::onNext);
-                            // 완료했다는 신호 보내주기
-                            sub.onComplete();
-                        } catch (Throwable t) {
-                            // 에러가 발생했다면 던져주기
-                            sub.onError(t);
-                        }
-                    }
-
-                    @Override
-                    public void cancel() {
-                        // cancel 되었을 때 하는 작업.
-                        // publisher에게 데이터를 보내지 말아달라고 요청할 때 사용함 (여기서 처리한다는 것!)
-                        // subscription을 통해서 cancel 가능
-                    }
-                });
+                // request(n)으로 요청받은 개수만큼만 iter에서 꺼내서 보내주고, 나머지는 다음 request까지 기다린다.
+                // 리스트를 다 보냈다면 완료 신호를, 중간에 에러가 발생했다면 에러를 던져준다.
+                // cancel 되었다면 publisher에게 더 이상 데이터를 보내지 말아달라는 것이므로 거기서 멈춘다.
+                sub.onSubscribe(new ListSubscription<>(sub, iter));
             }
         };
     }
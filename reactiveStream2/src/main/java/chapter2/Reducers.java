@@ -0,0 +1,234 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+
+import java.util.function.BiConsumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 원소마다 박싱하지 않는 reducePub 모음
+ *
+ * BiFunction<Integer, Integer, Integer>로 누적하면 원소마다 누적값 Integer가 새로 만들어진다.
+ * 여기서는 누적값을 int / long / double 필드에 그대로 들고 있다가, onComplete 때 한 번만 박싱해서 넘겨준다.
+ * seed 없는 reduce(min / max)는 원소가 하나도 없으면 값 없이 완료만 보낸다.
+ *
+ * 앞 단계가 mapPub(MapPub)이라면 map 함수를 합성해서 원본 publisher에 바로 붙는다.
+ * upstream이 동기 fusion을 지원하면 poll로 직접 꺼내서 누적한다. (FusingSub 참고)
+ */
+final class Reducers {
+    private Reducers() {
+    }
+
+    /* int */
+
+    static <T> Publisher<Integer> sumInt(Publisher<T> publisher, ToIntFunction<? super T> mapper) {
+        return reduceInt(publisher, 0, mapper, Integer::sum);
+    }
+
+    static <T> Publisher<Integer> minInt(Publisher<T> publisher, ToIntFunction<? super T> mapper) {
+        return reduceInt(publisher, mapper, Math::min);
+    }
+
+    static <T> Publisher<Integer> maxInt(Publisher<T> publisher, ToIntFunction<? super T> mapper) {
+        return reduceInt(publisher, mapper, Math::max);
+    }
+
+    static <T> Publisher<Integer> reduceInt(Publisher<T> publisher, int identity, ToIntFunction<? super T> mapper,
+                                            IntBinaryOperator op) {
+        return reduceInt(publisher, true, identity, mapper, op);
+    }
+
+    static <T> Publisher<Integer> reduceInt(Publisher<T> publisher, ToIntFunction<? super T> mapper,
+                                            IntBinaryOperator op) {
+        return reduceInt(publisher, false, 0, mapper, op);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Publisher<Integer> reduceInt(Publisher<T> publisher, boolean seeded, int identity,
+                                                    ToIntFunction<? super T> mapper, IntBinaryOperator op) {
+        if (publisher instanceof MapPub) {
+            MapPub<Object, T> prev = (MapPub<Object, T>) publisher;
+            Function<Object, ? extends T> before = prev.mapper;
+            return reduceInt(prev.source, seeded, identity, v -> mapper.applyAsInt(before.apply(v)), op);
+        }
+        return sub -> publisher.subscribe(new FusingSub<T, Integer>(sub) {
+            boolean hasValue = seeded;
+            int result = identity;
+
+            @Override
+            public void onNext(T item) {
+                int v = mapper.applyAsInt(item);
+                if (hasValue) {
+                    result = op.applyAsInt(result, v);
+                } else {
+                    result = v;
+                    hasValue = true;
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (hasValue) {
+                    sub.onNext(result);
+                }
+                sub.onComplete();
+            }
+        });
+    }
+
+    /* long */
+
+    static <T> Publisher<Long> sumLong(Publisher<T> publisher, ToLongFunction<? super T> mapper) {
+        return reduceLong(publisher, 0L, mapper, Long::sum);
+    }
+
+    static <T> Publisher<Long> minLong(Publisher<T> publisher, ToLongFunction<? super T> mapper) {
+        return reduceLong(publisher, mapper, Math::min);
+    }
+
+    static <T> Publisher<Long> maxLong(Publisher<T> publisher, ToLongFunction<? super T> mapper) {
+        return reduceLong(publisher, mapper, Math::max);
+    }
+
+    /** 받은 원소 개수 */
+    static <T> Publisher<Long> count(Publisher<T> publisher) {
+        return reduceLong(publisher, 0L, v -> 1L, Long::sum);
+    }
+
+    static <T> Publisher<Long> reduceLong(Publisher<T> publisher, long identity, ToLongFunction<? super T> mapper,
+                                          LongBinaryOperator op) {
+        return reduceLong(publisher, true, identity, mapper, op);
+    }
+
+    static <T> Publisher<Long> reduceLong(Publisher<T> publisher, ToLongFunction<? super T> mapper,
+                                          LongBinaryOperator op) {
+        return reduceLong(publisher, false, 0L, mapper, op);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Publisher<Long> reduceLong(Publisher<T> publisher, boolean seeded, long identity,
+                                                  ToLongFunction<? super T> mapper, LongBinaryOperator op) {
+        if (publisher instanceof MapPub) {
+            MapPub<Object, T> prev = (MapPub<Object, T>) publisher;
+            Function<Object, ? extends T> before = prev.mapper;
+            return reduceLong(prev.source, seeded, identity, v -> mapper.applyAsLong(before.apply(v)), op);
+        }
+        return sub -> publisher.subscribe(new FusingSub<T, Long>(sub) {
+            boolean hasValue = seeded;
+            long result = identity;
+
+            @Override
+            public void onNext(T item) {
+                long v = mapper.applyAsLong(item);
+                if (hasValue) {
+                    result = op.applyAsLong(result, v);
+                } else {
+                    result = v;
+                    hasValue = true;
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (hasValue) {
+                    sub.onNext(result);
+                }
+                sub.onComplete();
+            }
+        });
+    }
+
+    /* double */
+
+    static <T> Publisher<Double> sumDouble(Publisher<T> publisher, ToDoubleFunction<? super T> mapper) {
+        return reduceDouble(publisher, 0d, mapper, Double::sum);
+    }
+
+    static <T> Publisher<Double> minDouble(Publisher<T> publisher, ToDoubleFunction<? super T> mapper) {
+        return reduceDouble(publisher, mapper, Math::min);
+    }
+
+    static <T> Publisher<Double> maxDouble(Publisher<T> publisher, ToDoubleFunction<? super T> mapper) {
+        return reduceDouble(publisher, mapper, Math::max);
+    }
+
+    static <T> Publisher<Double> reduceDouble(Publisher<T> publisher, double identity,
+                                              ToDoubleFunction<? super T> mapper, DoubleBinaryOperator op) {
+        return reduceDouble(publisher, true, identity, mapper, op);
+    }
+
+    static <T> Publisher<Double> reduceDouble(Publisher<T> publisher, ToDoubleFunction<? super T> mapper,
+                                              DoubleBinaryOperator op) {
+        return reduceDouble(publisher, false, 0d, mapper, op);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Publisher<Double> reduceDouble(Publisher<T> publisher, boolean seeded, double identity,
+                                                      ToDoubleFunction<? super T> mapper, DoubleBinaryOperator op) {
+        if (publisher instanceof MapPub) {
+            MapPub<Object, T> prev = (MapPub<Object, T>) publisher;
+            Function<Object, ? extends T> before = prev.mapper;
+            return reduceDouble(prev.source, seeded, identity, v -> mapper.applyAsDouble(before.apply(v)), op);
+        }
+        return sub -> publisher.subscribe(new FusingSub<T, Double>(sub) {
+            boolean hasValue = seeded;
+            double result = identity;
+
+            @Override
+            public void onNext(T item) {
+                double v = mapper.applyAsDouble(item);
+                if (hasValue) {
+                    result = op.applyAsDouble(result, v);
+                } else {
+                    result = v;
+                    hasValue = true;
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (hasValue) {
+                    sub.onNext(result);
+                }
+                sub.onComplete();
+            }
+        });
+    }
+
+    /* 가변 상태 */
+
+    /**
+     * 구독마다 state를 하나 만들고, 원소마다 그 안에 누적한다. (Collector 같은 방식)
+     * 누적값을 새로 만들지 않고 state를 고쳐 쓰기 때문에 원소마다 생기는 객체가 없다.
+     */
+    @SuppressWarnings("unchecked")
+    static <T, A> Publisher<A> collect(Publisher<T> publisher, Supplier<A> state, BiConsumer<A, ? super T> accumulator) {
+        if (publisher instanceof MapPub) {
+            MapPub<Object, T> prev = (MapPub<Object, T>) publisher;
+            Function<Object, ? extends T> before = prev.mapper;
+            return collect(prev.source, state, (a, v) -> accumulator.accept(a, before.apply(v)));
+        }
+        return sub -> {
+            A container = state.get();
+            publisher.subscribe(new FusingSub<T, A>(sub) {
+                @Override
+                public void onNext(T item) {
+                    accumulator.accept(container, item);
+                }
+
+                @Override
+                public void onComplete() {
+                    sub.onNext(container);
+                    sub.onComplete();
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package chapter2;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 크기가 고정된 단일 생산자 / 단일 소비자 큐 (ring buffer)
+ * offer는 한 스레드에서만, poll은 다른 한 스레드에서만 호출해야 한다. 대신 락이 없다.
+ * 칸이 비어 있는지(null)로 가득 찼는지를 판단하기 때문에 null은 넣을 수 없다.
+ * chapter3의 PublishOnPub에서도 같이 쓴다.
+ */
+public final class SpscArrayQueue<T> {
+    private final AtomicReferenceArray<T> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public SpscArrayQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity > 0 required but it was " + capacity);
+        }
+        int size = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /** 가득 찼다면 false를 돌려주고 값을 버린다. */
+    public boolean offer(T item) {
+        long index = producerIndex.get();
+        int offset = (int) index & mask;
+        if (buffer.get(offset) != null) {
+            return false;
+        }
+        buffer.lazySet(offset, item);
+        producerIndex.lazySet(index + 1);
+        return true;
+    }
+
+    /** 비어 있다면 null을 돌려준다. */
+    public T poll() {
+        long index = consumerIndex.get();
+        int offset = (int) index & mask;
+        T item = buffer.get(offset);
+        if (item == null) {
+            return null;
+        }
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return item;
+    }
+
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    /** 대략적인 크기, 모니터링 용도로만 사용한다. */
+    public int size() {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public void clear() {
+        while (poll() != null) {
+            // 비워주기
+        }
+    }
+}
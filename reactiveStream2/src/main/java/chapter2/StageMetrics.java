@@ -0,0 +1,75 @@
+package chapter2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 단계(stage) 하나의 Micrometer meter 묶음, 모든 meter에는 stage 태그가 붙는다. (MeteredSub 참고)
+ *
+ * reactive.stage.onNext            : 받은 원소 수
+ * reactive.stage.requested         : downstream이 요청한 양 (Long.MAX_VALUE 요청은 제외)
+ * reactive.stage.requested.unbounded : Long.MAX_VALUE 요청 수
+ * reactive.stage.demand            : 아직 채워지지 않은 요청량 (gauge, 전부 요청한 구독은 빠진다.)
+ * reactive.stage.cancelled / errors : cancel, onError 수
+ * reactive.stage.dropped           : 요청이 없어서 버려진 원소 수 (시간 기반 publisher의 overflow)
+ * reactive.stage.first.item        : 구독부터 첫 원소까지 걸린 시간
+ * reactive.stage.completion        : 구독부터 onComplete까지 걸린 시간
+ *
+ * 같은 registry, 같은 stage 이름이면 같은 객체를 돌려준다. (gauge가 처음 등록한 AtomicLong만 보기 때문)
+ */
+public final class StageMetrics {
+    /** -Dchapter2.metrics=true 일 때만 meteredPub(publisher, stage)가 전역 registry에 기록한다. */
+    static final boolean ENABLED = Boolean.getBoolean("chapter2.metrics");
+
+    static final Map<MeterRegistry, Map<String, StageMetrics>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    final Counter onNext;
+    final Counter requested;
+    final Counter unboundedRequests;
+    final Counter cancelled;
+    final Counter errors;
+    final Counter dropped;
+    final Timer firstItem;
+    final Timer completion;
+    final AtomicLong demand = new AtomicLong();
+
+    private StageMetrics(MeterRegistry registry, String stage) {
+        onNext = Counter.builder("reactive.stage.onNext").tag("stage", stage).register(registry);
+        requested = Counter.builder("reactive.stage.requested").tag("stage", stage).register(registry);
+        unboundedRequests = Counter.builder("reactive.stage.requested.unbounded").tag("stage", stage).register(registry);
+        cancelled = Counter.builder("reactive.stage.cancelled").tag("stage", stage).register(registry);
+        errors = Counter.builder("reactive.stage.errors").tag("stage", stage).register(registry);
+        dropped = Counter.builder("reactive.stage.dropped").tag("stage", stage).register(registry);
+        firstItem = Timer.builder("reactive.stage.first.item").tag("stage", stage).register(registry);
+        completion = Timer.builder("reactive.stage.completion").tag("stage", stage).register(registry);
+        Gauge.builder("reactive.stage.demand", demand, AtomicLong::doubleValue).tag("stage", stage).register(registry);
+    }
+
+    /** registry에 stage 이름으로 등록된 meter 묶음 */
+    public static StageMetrics of(MeterRegistry registry, String stage) {
+        Objects.requireNonNull(registry, "registry");
+        Objects.requireNonNull(stage, "stage");
+        Map<String, StageMetrics> stages = CACHE.computeIfAbsent(registry, r -> new ConcurrentHashMap<>());
+        return stages.computeIfAbsent(stage, s -> new StageMetrics(registry, s));
+    }
+
+    /** 버려진 원소 수를 더한다. (chapter3.IntervalPub의 overflow 처리) */
+    public void recordDropped(long n) {
+        dropped.increment(n);
+    }
+
+    /** 전역 registry(Metrics.globalRegistry)의 meter 묶음, 꺼져 있으면 null */
+    public static StageMetrics global(String stage) {
+        return ENABLED ? of(Metrics.globalRegistry, stage) : null;
+    }
+}
@@ -0,0 +1,256 @@
+package chapter2;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * 끝나지 않는 stream에서도 쓸 수 있는 reducePub
+ * 완료를 기다리지 않고, count개마다 또는 period마다 지금까지의 누적값(running aggregate)을 내보낸다.
+ *
+ * 1. 원소를 모아두지 않고 누적값 하나만 이어서 계산하기 때문에 메모리는 원소 수와 상관없이 일정하다.
+ * 2. downstream의 요청이 없을 때 나온 누적값은 최신 값 하나만 들고 있다가, 요청이 오면 넘겨준다. (오래된 값은 덮어쓴다.)
+ * 3. upstream이 끝나면 마지막으로 내보낸 뒤에 바뀐 누적값이 있을 때만 그 값을 내보내고 완료한다.
+ *    (count의 배수로 끝났거나 마지막 tick 뒤에 원소가 없었다면 같은 값을 다시 내보내지 않는다. 원소가 없는 stream은 바로 완료한다.)
+ *
+ * 누적값 계산, timer의 emit, request는 모두 this로 동기화되어 있어서 downstream에는 한 번에 하나의 신호만 나간다.
+ * 누적값이 가변 객체(StringBuilder 등)라면 내보낸 뒤에도 계속 바뀌므로, 불변 값을 쓰는 것이 좋다.
+ */
+public final class WindowReducePub<T, R> implements Publisher<R> {
+    final Publisher<T> source;
+    final R start;
+    final BiFunction<R, T, R> biFunc;
+    // 0 이면 시간 기준
+    final int count;
+    final long period;
+    final TimeUnit unit;
+    final ScheduledExecutorService timer;
+
+    private WindowReducePub(Publisher<T> source, R start, BiFunction<R, T, R> biFunc, int count,
+                            long period, TimeUnit unit, ScheduledExecutorService timer) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.start = start;
+        this.biFunc = Objects.requireNonNull(biFunc, "biFunc");
+        this.count = count;
+        this.period = period;
+        this.unit = unit;
+        this.timer = timer;
+    }
+
+    /** count개를 받을 때마다 누적값을 내보낸다. */
+    public static <T, R> Publisher<R> everyCount(Publisher<T> source, R start, BiFunction<R, T, R> biFunc, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count > 0 required but it was " + count);
+        }
+        return new WindowReducePub<>(source, start, biFunc, count, 0L, null, null);
+    }
+
+    /** timer 위에서 period마다 누적값을 내보낸다. */
+    public static <T, R> Publisher<R> everyPeriod(Publisher<T> source, R start, BiFunction<R, T, R> biFunc,
+                                                  long period, TimeUnit unit, ScheduledExecutorService timer) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period > 0 required but it was " + period);
+        }
+        return new WindowReducePub<>(source, start, biFunc, 0, period, Objects.requireNonNull(unit, "unit"),
+                Objects.requireNonNull(timer, "timer"));
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super R> sub) {
+        source.subscribe(new WindowSub<>(sub, this));
+    }
+
+    static final class WindowSub<T, R> implements Subscriber<T>, Subscription, Runnable {
+        final Subscriber<? super R> downstream;
+        final BiFunction<R, T, R> biFunc;
+        final WindowReducePub<T, R> parent;
+
+        Subscription upstream;
+
+        // 아래 값들은 모두 this로 동기화해서 접근한다.
+        ScheduledFuture<?> tick;
+        R result;
+        int seen;
+        // 마지막으로 내보낸(pending 포함) 뒤에 result가 바뀌었는지
+        boolean changed;
+        long requested;
+        boolean upstreamRequested;
+        // 아직 downstream에게 넘기지 못한 최신 누적값
+        R pending;
+        boolean hasPending;
+        boolean done;
+        boolean terminated;
+
+        WindowSub(Subscriber<? super R> downstream, WindowReducePub<T, R> parent) {
+            this.downstream = downstream;
+            this.biFunc = parent.biFunc;
+            this.parent = parent;
+            this.result = parent.start;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            downstream.onSubscribe(this);
+            if (parent.count == 0) {
+                ScheduledFuture<?> f = parent.timer.scheduleAtFixedRate(this, parent.period, parent.period, parent.unit);
+                synchronized (this) {
+                    tick = f;
+                    // onSubscribe 안에서 이미 끝났다면 timer도 바로 멈춘다.
+                    if (done) {
+                        stopTick();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                try {
+                    result = biFunc.apply(result, item);
+                    changed = true;
+                } catch (Throwable t) {
+                    upstream.cancel();
+                    errorLocked(t);
+                    return;
+                }
+                int count = parent.count;
+                if (count != 0 && ++seen == count) {
+                    seen = 0;
+                    emitLocked();
+                }
+            }
+        }
+
+        /** timer에서 period마다 호출된다. */
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (!done) {
+                    emitLocked();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            synchronized (this) {
+                if (!done) {
+                    errorLocked(t);
+                }
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                stopTick();
+                if (changed) {
+                    // 마지막 누적값을 넘겨준 뒤에 완료한다.
+                    emitLocked();
+                } else if (!hasPending) {
+                    terminated = true;
+                    downstream.onComplete();
+                }
+                // 아직 넘기지 못한 값이 있으면 요청이 올 때 그 값을 넘기고 완료한다.
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            boolean first;
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                if (n <= 0) {
+                    // 규약 3.9
+                    upstream.cancel();
+                    errorLocked(new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+                    return;
+                }
+                long r = requested + n;
+                requested = r < 0L ? Long.MAX_VALUE : r;
+                if (hasPending) {
+                    offerLocked(pending);
+                }
+                first = !upstreamRequested;
+                upstreamRequested = true;
+            }
+            // 내보내는 값은 누적값이라 upstream에는 전부 요청한다.
+            if (first) {
+                upstream.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                done = true;
+                terminated = true;
+                hasPending = false;
+                pending = null;
+                stopTick();
+            }
+            upstream.cancel();
+        }
+
+        /** 지금 누적값을 내보낸다. */
+        void emitLocked() {
+            changed = false;
+            offerLocked(result);
+        }
+
+        /** 요청이 남아 있다면 바로 넘겨주고, 아니라면 최신 값으로 덮어써둔다. */
+        void offerLocked(R value) {
+            if (terminated) {
+                return;
+            }
+            if (requested == 0L) {
+                pending = value;
+                hasPending = true;
+                return;
+            }
+            if (requested != Long.MAX_VALUE) {
+                requested--;
+            }
+            hasPending = false;
+            pending = null;
+            downstream.onNext(value);
+            if (done && !terminated) {
+                terminated = true;
+                downstream.onComplete();
+            }
+        }
+
+        void errorLocked(Throwable t) {
+            done = true;
+            terminated = true;
+            hasPending = false;
+            pending = null;
+            stopTick();
+            downstream.onError(t);
+        }
+
+        void stopTick() {
+            ScheduledFuture<?> f = tick;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+}
@@ -1,16 +1,14 @@
 package chapter3;
 
+import chapter2.AsyncLog;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 
-import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class FluxSchedulerEx {
     public static void main(String[] args) {
-        System.out.println(getCurrentThread() + "START!");
+        AsyncLog.log("START!");
         /** Reactor에서 제공하는 Flux 활용 */
         // 1 ~ 10 데이터 생성
 //        simpleFluxEx();
@@ -23,13 +21,41 @@ public class FluxSchedulerEx {
 
         /** interval Ex - 사용자 스레드 예제 */
 //        userThreadExample();
+
+        /** virtual 스레드 Scheduler 예제 */
+//        virtualThreadEx();
+    }
+
+    private static void virtualThreadEx() {
+        // blocking 하는 구독자는 virtual 스레드에서 실행하면 OS 스레드를 붙잡지 않는다.
+        VirtualThreadScheduler scheduler = VirtualThreadScheduler.shared();
+        Flux.range(1, 10)
+                .subscribeOn(scheduler.asReactorScheduler())
+                .publishOn(scheduler.asReactorScheduler())
+                .doOnNext(i -> {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                })
+                .subscribe(AsyncLog.tap(""));
+
+        try {
+            TimeUnit.SECONDS.sleep(2);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        // onNext는 virtual-N 스레드에서 찍힌다. drain 작업마다 새 virtual 스레드라 번호는 바뀔 수 있다.
+        // virtual 스레드도 daemon이라서 main이 기다려야 한다.
     }
 
     private static void intervalEx() {
-        Flux.interval(Duration.ofMillis(200))
+        // Flux.interval(Duration.ofMillis(200))은 구독마다 timer를 등록하므로, 200ms 구독끼리 tick 하나를 나눠 쓰는 source로 바꾼다.
+        Flux.from(SharedTickSource.shared().interval(200, TimeUnit.MILLISECONDS))
                 // 데이터를 10개만 받겠다고 지정이 가능하다!
                 .take(10)
-                .subscribe(s-> System.out.println(getCurrentThread()+s));
+                .subscribe(AsyncLog.tap(""));
 
         try {
             // 이때, timeUnit을 걸어줘야 한다.
@@ -48,10 +74,10 @@ public class FluxSchedulerEx {
             try {
                 TimeUnit.SECONDS.sleep(2);
             } catch (InterruptedException e) {
-                System.out.println(getCurrentThread() + "Exception!");
+                AsyncLog.log("Exception!");
             }
         });
-        System.out.println(getCurrentThread() + "EXIT");
+        AsyncLog.log("EXIT");
         /*
         결과)
         [main] START!
@@ -61,16 +87,14 @@ public class FluxSchedulerEx {
     }
 
     private static void simpleFluxEx() {
+        // 호출마다 Schedulers.newSingle을 만들면 스레드가 계속 늘어나므로, 공용 pool을 꺼내 쓴다.
+        SchedulerRegistry schedulers = SchedulerRegistry.shared();
         Flux.range(1, 10)
                 // publishOn -> subscribe, request는 main, onNext는 pub에서
-                .publishOn(Schedulers.newSingle("pub"))
+                .publishOn(schedulers.cpu())
                 .log()
                 // subscribeOn -> subscribe, request, onNext 작업 모두 별도의 스레드에서 동작한다.
-                .subscribeOn((Scheduler) Schedulers.newSingle("sub").disposeGracefully())
+                .subscribeOn(schedulers.io())
                 .subscribe(System.out::println);
     }
-
-    private static String getCurrentThread() {
-        return "[" + Thread.currentThread().getName() + "] ";
-    }
 }
@@ -0,0 +1,296 @@
+package chapter3;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 스레드 하나로 아주 많은 timer를 돌리는 hashed wheel timer (Netty의 HashedWheelTimer와 같은 구조)
+ * interval publisher마다 ScheduledExecutorService를 만들던 것을 대신한다. (IntervalPub 참고)
+ *
+ * 1. wheel은 tick 간격의 칸(bucket) 배열이고, timer는 deadline이 속한 칸의 연결 리스트에 들어간다.
+ *    wheel 한 바퀴보다 먼 timer는 남은 바퀴 수(remainingRounds)를 들고 있다.
+ * 2. 스레드는 tick마다 깨어나서 현재 칸 하나만 훑는다. 등록과 취소는 O(1)이다.
+ * 3. 다른 스레드의 등록, 취소는 lock 없이 큐로 넘기고, 칸의 연결 리스트는 timer 스레드만 건드린다.
+ * 4. 취소하면 바로 상태가 바뀌고 task 참조도 끊긴다. 칸에서 빼는 것은 다음 tick에 timer 스레드가 한다.
+ * 5. 반복 timer는 실행 후 deadline + period로 다시 넣는다. (fixed rate, 실행 시간만큼 밀리지 않는다.)
+ *
+ * task는 timer 스레드에서 실행되므로 오래 걸리는 작업은 다른 스레드로 넘겨야 다른 timer가 밀리지 않는다.
+ * 정밀도는 tick 간격이다. (deadline보다 최대 tick 하나 늦게 실행된다.)
+ */
+public final class HashedWheelTimer {
+    static final class Holder {
+        static final HashedWheelTimer SHARED = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 512, "wheel-timer");
+    }
+
+    static final int INIT = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    final long tickNanos;
+    final Bucket[] wheel;
+    final int mask;
+    final long startTime;
+    final Thread worker;
+
+    final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    final AtomicInteger active = new AtomicInteger();
+    volatile boolean stopped;
+
+    // timer 스레드만 쓴다.
+    long tick;
+    final ArrayDeque<Timeout> rescheduled = new ArrayDeque<>();
+
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, String name) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration > 0 required but it was " + tickDuration);
+        }
+        if (ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("ticksPerWheel > 0 required but it was " + ticksPerWheel);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = 1 << (32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1));
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::runWorker, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** tick 1ms, 512칸짜리 공용 timer */
+    public static HashedWheelTimer shared() {
+        return Holder.SHARED;
+    }
+
+    /** delay 뒤에 한 번 실행한다. */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(task, unit.toNanos(delay), 0L);
+    }
+
+    /** initialDelay 뒤부터 period마다 실행한다. */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period > 0 required but it was " + period);
+        }
+        return add(task, unit.toNanos(initialDelay), unit.toNanos(period));
+    }
+
+    /** 등록되어 있는 (아직 끝나거나 취소되지 않은) timer 수 */
+    public int activeTimeouts() {
+        return active.get();
+    }
+
+    /** timer 스레드를 멈춘다. 남은 timer는 실행되지 않는다. */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    Timeout add(Runnable task, long delayNanos, long periodNanos) {
+        Objects.requireNonNull(task, "task");
+        if (stopped) {
+            throw new RejectedExecutionException("timer is stopped");
+        }
+        long deadline = System.nanoTime() - startTime + Math.max(0L, delayNanos);
+        Timeout timeout = new Timeout(this, task, deadline, periodNanos);
+        active.incrementAndGet();
+        pending.offer(timeout);
+        return timeout;
+    }
+
+    void runWorker() {
+        while (!stopped) {
+            long now = waitForNextTick();
+            if (stopped) {
+                break;
+            }
+            removeCancelled();
+            transferPending();
+            Bucket bucket = wheel[(int) (tick & mask)];
+            bucket.expire(now, rescheduled);
+            // 방금 훑은 칸에 다시 넣으면 한 바퀴 뒤에야 실행되므로, tick을 먼저 넘긴 뒤에 넣는다.
+            tick++;
+            Timeout t;
+            while ((t = rescheduled.poll()) != null) {
+                place(t);
+            }
+        }
+    }
+
+    /** 다음 tick의 시각까지 기다렸다가, startTime 기준 현재 시각을 돌려준다. */
+    long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        for (;;) {
+            long now = System.nanoTime() - startTime;
+            long sleep = deadline - now;
+            if (sleep <= 0 || stopped) {
+                return now;
+            }
+            LockSupport.parkNanos(this, sleep);
+        }
+    }
+
+    void transferPending() {
+        // 한 tick에 너무 오래 머물지 않도록 나눠서 옮긴다.
+        for (int i = 0; i < 100_000; i++) {
+            Timeout t = pending.poll();
+            if (t == null) {
+                return;
+            }
+            if (t.state.get() == INIT) {
+                place(t);
+            }
+        }
+    }
+
+    void removeCancelled() {
+        Timeout t;
+        while ((t = cancelled.poll()) != null) {
+            Bucket b = t.bucket;
+            if (b != null) {
+                b.remove(t);
+            }
+        }
+    }
+
+    /** deadline이 속한 칸에 넣는다. timer 스레드에서만 호출한다. */
+    void place(Timeout t) {
+        long calculated = t.deadline / tickNanos;
+        t.remainingRounds = (calculated - tick) / wheel.length;
+        // 이미 지난 deadline이라면 지금 칸에 넣는다.
+        long ticks = Math.max(calculated, tick);
+        wheel[(int) (ticks & mask)].add(t);
+    }
+
+    /** 등록된 timer, cancel()로 취소한다. */
+    public static final class Timeout {
+        final HashedWheelTimer timer;
+        final long periodNanos;
+        final AtomicInteger state = new AtomicInteger(INIT);
+        volatile Runnable task;
+
+        // 아래 값은 timer 스레드만 쓴다.
+        long deadline;
+        long remainingRounds;
+        Bucket bucket;
+        Timeout prev;
+        Timeout next;
+
+        Timeout(HashedWheelTimer timer, Runnable task, long deadline, long periodNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        /** 이미 실행이 끝났거나 취소되었다면 false */
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            // task(보통 subscriber를 들고 있다)는 바로 놓아준다.
+            task = null;
+            timer.active.decrementAndGet();
+            timer.cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        void run() {
+            Runnable r = task;
+            if (r == null) {
+                return;
+            }
+            try {
+                r.run();
+            } catch (Throwable ex) {
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, ex);
+            }
+        }
+    }
+
+    /** wheel의 한 칸, 양방향 연결 리스트 */
+    static final class Bucket {
+        Timeout head;
+        Timeout tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            if (head == null) {
+                head = tail = t;
+            } else {
+                tail.next = t;
+                t.prev = tail;
+                tail = t;
+            }
+        }
+
+        void remove(Timeout t) {
+            Timeout next = t.next;
+            if (t.prev != null) {
+                t.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = t.prev;
+            }
+            if (t == head) {
+                head = next;
+            }
+            if (t == tail) {
+                tail = t.prev;
+            }
+            t.prev = null;
+            t.next = null;
+            t.bucket = null;
+        }
+
+        /** deadline이 지난 timer를 실행하고, 반복 timer는 rescheduled에 모아둔다. */
+        void expire(long now, ArrayDeque<Timeout> rescheduled) {
+            Timeout t = head;
+            while (t != null) {
+                Timeout next = t.next;
+                if (t.remainingRounds <= 0) {
+                    remove(t);
+                    if (t.deadline <= now) {
+                        int s = t.state.get();
+                        if (s == INIT) {
+                            if (t.periodNanos == 0L) {
+                                if (t.state.compareAndSet(INIT, EXPIRED)) {
+                                    t.timer.active.decrementAndGet();
+                                    t.run();
+                                    t.task = null;
+                                }
+                            } else {
+                                t.run();
+                                if (t.state.get() == INIT) {
+                                    t.deadline += t.periodNanos;
+                                    rescheduled.add(t);
+                                }
+                            }
+                        }
+                    } else {
+                        // tick 경계에서 조금 이르게 들어온 timer, 다시 넣어서 다음 tick에 실행한다.
+                        rescheduled.add(t);
+                    }
+                } else {
+                    t.remainingRounds--;
+                }
+                t = next;
+            }
+        }
+    }
+}
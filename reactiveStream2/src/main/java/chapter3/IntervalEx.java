@@ -1,53 +1,29 @@
 package chapter3;
 
+import chapter2.AsyncLog;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 public class IntervalEx {
     /** Interval Example */
-    public static void main(String[] args) {
-        System.out.println(getCurrentThread() + "START!");
+    public static void main(String[] args) throws InterruptedException {
+        AsyncLog.log("START!");
 
         /** Publisher */
-        Publisher<Integer> publisher = sub -> {
-            sub.onSubscribe(new Subscription() {
-                int number = 0;
-                boolean isCanceled;
-
-                @Override
-                public void request(long n) {
-                    ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
-                    // 어떠한 작업을 일정 시간의 간격을 두고 계속 실행하도록 할 수 있다.
-                    // param -> runnable, initialDay, period, timeUnit
-                    // 초기 딜레이값, 사이사이 기간, 단위
-
-                    // 종료하기 전까지 계속 데이터를 보내는 코드
-                    // 일정 수만큼 데이터를 보내면 멈추는 작업을 진행해보자.
-                    ses.scheduleAtFixedRate(() -> {
-                        // 10개 이상이 되면 isCanceled=true가 되니까 작업 종료
-                        if (isCanceled) {
-                            ses.shutdown();
-                            return;
-                        }
-                        sub.onNext(number++);
-                    }, 0, 300, TimeUnit.MILLISECONDS);
-                }
-
-                @Override
-                public void cancel() {
-                    isCanceled = true;
-                }
-            });
-        };
+        // 예전에는 request마다 newSingleThreadScheduledExecutor를 만들어서 scheduleAtFixedRate로 보냈다.
+        // 구독마다 스레드가 하나씩 생기고, cancel 되어도 다음 tick이 와야 executor가 멈췄다.
+        // 지금은 공용 HashedWheelTimer 하나에 timer만 등록한다. cancel 하면 바로 취소된다. (IntervalPub 참고)
+        // 거기에 period가 같은 구독끼리는 timer 하나의 tick을 나눠 쓴다. (SharedTickSource 참고)
+        // param -> 사이사이 기간, 단위
+        Publisher<Long> publisher = SharedTickSource.shared().interval(300, TimeUnit.MILLISECONDS);
 
         /** Flux의 take와 동일한 작업을 하는 Publisher 구현 */
-        Publisher<Integer> takePub = sub -> {
-            publisher.subscribe(new Subscriber<Integer>() {
+        Publisher<Long> takePub = sub -> {
+            publisher.subscribe(new Subscriber<Long>() {
                 int counter = 0;
                 Subscription subscription;
 
@@ -58,12 +34,14 @@ public class IntervalEx {
                 }
 
                 @Override
-                public void onNext(Integer integer) {
+                public void onNext(Long integer) {
                     sub.onNext(integer);
                     // 10개 이상이 되면 cancel 작업 진행하기
                     if (++counter >= 10) {
                         subscription.cancel(); // cancel 요청
                         // 음... subscribe를 통해서 약간 원하는 시점에서 데이터를 그만 달라고 전달을 해줄 수 있다는 것.
+                        // Flux의 take처럼 downstream에는 완료를 알려준다.
+                        sub.onComplete();
                     }
 
                 }
@@ -81,30 +59,35 @@ public class IntervalEx {
         };
 
         /** Subscriber */
-        takePub.subscribe(new Subscriber<Integer>() {
+        CountDownLatch done = new CountDownLatch(1);
+        takePub.subscribe(new Subscriber<Long>() {
             @Override
             public void onSubscribe(Subscription s) {
                 s.request(Long.MAX_VALUE);
-                System.out.println(getCurrentThread() + "onSubscribe!");
+                AsyncLog.log("onSubscribe!");
             }
 
             @Override
-            public void onNext(Integer integer) {
-                System.out.println(getCurrentThread() + "onNext = " + integer);
+            public void onNext(Long integer) {
+                AsyncLog.log("onNext = ", integer);
             }
 
             @Override
             public void onError(Throwable t) {
-                System.out.println(getCurrentThread() + "onError = " + t);
+                AsyncLog.log("onError = ", t);
+                done.countDown();
             }
 
             @Override
             public void onComplete() {
-                System.out.println(getCurrentThread() + "onComplete!");
+                AsyncLog.log("onComplete!");
+                done.countDown();
             }
         });
 
-        System.out.println(getCurrentThread() + "EXIT!");
+        AsyncLog.log("EXIT!");
+        // timer 스레드는 daemon이라 main이 먼저 끝나지 않도록 기다린다.
+        done.await();
 
         /*
         결과)
@@ -121,10 +104,13 @@ public class IntervalEx {
         [pool-1-thread-1] onNext = 7
         [pool-1-thread-1] onNext = 8
         [pool-1-thread-1] onNext = 9
-         */
-    }
 
-    private static String getCurrentThread() {
-        return "[" + Thread.currentThread().getName() + "] ";
+        HashedWheelTimer 적용 후)
+        [main] START!
+        [main] onSubscribe!
+        [main] EXIT!
+        [wheel-timer] onNext = 0 ~ 9
+        [wheel-timer] onComplete!
+         */
     }
 }
@@ -0,0 +1,162 @@
+package chapter3;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * interval 구독을 동시에 많이 걸었을 때의 스레드 수, heap, tick 지연(jitter)
+ * executor : 예전 IntervalEx, request마다 newSingleThreadScheduledExecutor
+ * wheel    : IntervalPub + 공용 HashedWheelTimer (tick 1ms), 구독마다 timer 하나
+ * shared   : SharedTickSource, 같은 period의 구독이 timer 하나를 나눠 쓴다.
+ *
+ * 구독마다 100ms 간격으로 20번 받은 뒤 cancel 한다.
+ * jitter는 구독 시점 + k * period 보다 얼마나 늦게 onNext가 왔는지이다.
+ * (shared는 첫 값이 그룹의 다음 tick에 오도록 일부러 맞추므로, 구독 시점 대신 구독 뒤 첫 tick 시각을 기준으로 한다.)
+ * heap은 전부 구독한 뒤 GC를 한 번 돌리고 잰 사용량(시작 시점 대비)이다.
+ * timers는 전부 구독한 직후 wheel에 등록된 timer 수, cpu는 전부 구독한 뒤부터 끝날 때까지 쓴 process CPU 시간이다.
+ */
+public class IntervalLoadTest {
+    enum Mode { EXECUTOR, WHEEL, SHARED }
+
+    static final long PERIOD_MS = 100;
+    static final int TICKS = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        run("executor", 2_000, Mode.EXECUTOR);
+        run("wheel   ", 2_000, Mode.WHEEL);
+        run("wheel   ", 100_000, Mode.WHEEL);
+        run("shared  ", 100_000, Mode.SHARED);
+        /*
+        결과) 1 CPU, JDK 17
+        executor   2,000 subs: peak threads =  2,007, heap =  14,406 KB, jitter p50 =     91 us, p99 = 31,129 us, max =  61,889 us
+                 timers =       0, cpu =  1,190 ms
+        wheel      2,000 subs: peak threads =      7, heap =  -2,608 KB, jitter p50 =    653 us, p99 =  5,705 us, max =  16,650 us
+                 timers =   2,000, cpu =    180 ms
+        wheel    100,000 subs: peak threads =      7, heap =  25,173 KB, jitter p50 =  1,008 us, p99 = 79,143 us, max = 117,694 us
+                 timers = 100,000, cpu =    780 ms
+        shared   100,000 subs: peak threads =      7, heap =  19,793 KB, jitter p50 =  5,600 us, p99 = 87,367 us, max =  90,036 us
+                 timers =       1, cpu =    400 ms
+        - executor는 구독마다 스레드가 하나씩 생긴다. heap에는 스레드 stack(native)이 빠져 있어서 실제 메모리는 훨씬 크다.
+        - wheel은 구독 수와 상관없이 스레드 하나이다. 2,000개일 때 heap은 측정 오차 범위 안이다.
+        - wheel의 p50은 tick(1ms) 단위로 반올림된 만큼 늦다. 대신 스레드 2,000개가 CPU를 나눠 쓰며 생기는 긴 꼬리가 없다.
+        - shared는 구독 수와 상관없이 timer가 period마다 하나라서, timer 등록, 재배치 비용과 Timeout 객체가 없다. (cpu, heap)
+        - 대신 같은 tick에 100,000개를 차례로 돌리므로 p50은 한 번 돌리는 시간의 절반 정도 늦다. wheel은 구독 시점만큼 tick이 흩어져 있다.
+         */
+    }
+
+    static void run(String name, int subscriptions, Mode mode) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long[] lateness = new long[subscriptions * TICKS];
+        System.gc();
+        threads.resetPeakThreadCount();
+        long baseHeap = memory.getHeapMemoryUsage().getUsed();
+
+        Publisher<Long> publisher = mode == Mode.EXECUTOR ? executorIntervalPub()
+                : mode == Mode.WHEEL ? new IntervalPub(0, PERIOD_MS, TimeUnit.MILLISECONDS, HashedWheelTimer.shared())
+                : SharedTickSource.shared().interval(PERIOD_MS, TimeUnit.MILLISECONDS);
+        CountDownLatch done = new CountDownLatch(subscriptions);
+        for (int i = 0; i < subscriptions; i++) {
+            int offset = i * TICKS;
+            publisher.subscribe(new Subscriber<Long>() {
+                Subscription s;
+                long start;
+                int received;
+
+                @Override
+                public void onSubscribe(Subscription s) {
+                    this.s = s;
+                    start = mode == Mode.SHARED ? nextSharedTick(System.nanoTime()) : System.nanoTime();
+                    s.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Long tick) {
+                    long expected = start + TimeUnit.MILLISECONDS.toNanos(PERIOD_MS) * received;
+                    lateness[offset + received] = System.nanoTime() - expected;
+                    if (++received == TICKS) {
+                        s.cancel();
+                        done.countDown();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    t.printStackTrace();
+                    done.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+        }
+        int timers = HashedWheelTimer.shared().activeTimeouts();
+        System.gc();
+        long heap = memory.getHeapMemoryUsage().getUsed() - baseHeap;
+        long baseCpu = processCpuNanos();
+        if (!done.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(name + " timed out, remaining " + done.getCount());
+        }
+
+        long cpu = processCpuNanos() - baseCpu;
+        Arrays.sort(lateness);
+        System.out.printf("%s %,7d subs: peak threads = %,6d, heap = %,7d KB, jitter p50 = %,6d us, p99 = %,6d us, max = %,7d us%n",
+                name, subscriptions, threads.getPeakThreadCount(), heap >> 10,
+                lateness[lateness.length / 2] / 1000, lateness[(int) (lateness.length * 0.99)] / 1000,
+                lateness[lateness.length - 1] / 1000);
+        System.out.printf("         timers = %,7d, cpu = %,6d ms%n", timers, cpu / 1_000_000);
+        if (mode != Mode.EXECUTOR) {
+            // cancel 하면 바로 빠지므로 남아있는 timer가 없어야 한다.
+            System.out.println("         active timeouts after cancel = " + HashedWheelTimer.shared().activeTimeouts());
+        }
+        // executor 방식은 cancel 뒤 다음 tick에 스레드가 정리된다.
+        TimeUnit.MILLISECONDS.sleep(PERIOD_MS * 3);
+    }
+
+    /** SharedTickSource는 source를 만든 시각부터 period의 배수마다 tick이 온다. */
+    static long nextSharedTick(long now) {
+        long period = TimeUnit.MILLISECONDS.toNanos(PERIOD_MS);
+        long start = SharedTickSource.shared().startTime;
+        return start + ((now - start) / period + 1) * period;
+    }
+
+    static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /** 예전 IntervalEx의 publisher */
+    static Publisher<Long> executorIntervalPub() {
+        return sub -> sub.onSubscribe(new Subscription() {
+            long number = 0;
+            boolean isCanceled;
+
+            @Override
+            public void request(long n) {
+                ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
+                ses.scheduleAtFixedRate(() -> {
+                    if (isCanceled) {
+                        ses.shutdown();
+                        return;
+                    }
+                    sub.onNext(number++);
+                }, 0, PERIOD_MS, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public void cancel() {
+                isCanceled = true;
+            }
+        });
+    }
+}
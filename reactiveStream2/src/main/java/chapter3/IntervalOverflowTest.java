@@ -0,0 +1,99 @@
+package chapter3;
+
+import chapter2.StageMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 소비자가 느릴 때 OverflowStrategy별 동작 확인
+ * 1ms마다 tick이 오고, 소비자는 값 하나를 10ms 동안 처리한 뒤에 request(1)을 한다. (다른 스레드에서)
+ * 1초 동안 받은 수, 버려진 수, 받은 값의 최대 지연(tick 번호 기준)을 본다.
+ * 버려진 수는 registry의 reactive.stage.dropped{stage=interval-전략}에도 같이 쌓인다.
+ */
+public class IntervalOverflowTest {
+    static final int BUFFER_SIZE = 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        for (OverflowStrategy strategy : OverflowStrategy.values()) {
+            run(strategy, registry);
+        }
+        /*
+        결과) 1 CPU, JDK 17
+        ERROR  received =   1, dropped =    0, max lag =   5 ticks, error = Could not emit tick 1 due to lack of requests
+        DROP   received =  91, dropped =  909, max lag =   1 ticks
+        LATEST received =  98, dropped =  901, max lag =   2 ticks
+        BUFFER received =  97, dropped =  887, max lag = 174 ticks
+        - ERROR는 요청이 없는 두 번째 tick에서 바로 실패한다.
+        - DROP은 요청이 들어온 뒤의 tick만 받으므로 항상 최신 값이다.
+        - LATEST는 기다리는 동안의 마지막 값을 받는다. (lag은 tick 하나 정도)
+        - BUFFER는 bufferSize(16) * 처리 시간(10ms) 만큼 늦은 값을 받고, 넘친 값은 버린다. 쌓이는 양은 16개를 넘지 않는다.
+         */
+    }
+
+    static void run(OverflowStrategy strategy, SimpleMeterRegistry registry) throws InterruptedException {
+        StageMetrics metrics = StageMetrics.of(registry, "interval-" + strategy);
+        IntervalPub publisher = new IntervalPub(0, 1, TimeUnit.MILLISECONDS, HashedWheelTimer.shared(),
+                strategy, BUFFER_SIZE, metrics);
+        ExecutorService consumer = Executors.newSingleThreadExecutor();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch errored = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] received = new long[1];
+        long[] maxLag = new long[1];
+        Subscription[] subscription = new Subscription[1];
+
+        publisher.subscribe(new Subscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Long tick) {
+                // 지금 시각의 tick 번호와 받은 값의 차이 = 얼마나 오래된 값인지
+                long now = (System.nanoTime() - start) / 1_000_000L;
+                consumer.execute(() -> {
+                    received[0]++;
+                    maxLag[0] = Math.max(maxLag[0], now - tick);
+                    sleep(10);
+                    subscription[0].request(1);
+                });
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error.set(t);
+                errored.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        errored.await(1, TimeUnit.SECONDS);
+        subscription[0].cancel();
+        consumer.shutdown();
+        consumer.awaitTermination(1, TimeUnit.SECONDS);
+        Throwable t = error.get();
+        System.out.printf("%-6s received = %3d, dropped = %4d, max lag = %3d ticks%s%n", strategy,
+                received[0], publisher.droppedCount(), maxLag[0], t == null ? "" : ", error = " + t.getMessage());
+    }
+
+    static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
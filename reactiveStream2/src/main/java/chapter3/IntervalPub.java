@@ -0,0 +1,263 @@
+package chapter3;
+
+import chapter2.SpscArrayQueue;
+import chapter2.StageMetrics;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * period마다 0, 1, 2, ... 를 보내는 publisher (Flux.interval과 같은 동작)
+ * 구독마다 스레드를 만들지 않고, HashedWheelTimer 하나에 timer만 등록한다.
+ *
+ * 1. 구독하면 바로 timer가 등록되고, cancel 하면 바로 취소된다. (다음 tick을 기다리지 않는다.)
+ * 2. onNext는 timer 스레드나 request를 부른 스레드에서 호출되므로, 무거운 처리는 pubOnPub으로 넘기는 것이 좋다.
+ * 3. downstream의 요청보다 tick이 빠를 때는 OverflowStrategy를 따른다. (기본은 ERROR)
+ *    tick은 값을 슬롯이나 크기가 정해진 큐에 넣기만 하고, drain 루프가 요청량 안에서 꺼내 보낸다.
+ *    그래서 timer 스레드는 기다리지 않고, 느린 소비자가 있어도 쌓이는 값은 bufferSize를 넘지 않는다.
+ * 4. 버린 값의 수는 droppedCount()와 StageMetrics(reactive.stage.dropped)에 남는다.
+ * 5. SharedTickSource에서 만든 것은 구독마다 timer를 등록하지 않고, period가 같은 구독들과 tick을 나눠 쓴다.
+ */
+final class IntervalPub implements Publisher<Long> {
+    final long initialDelay;
+    final long period;
+    final TimeUnit unit;
+    final HashedWheelTimer timer;
+    final OverflowStrategy strategy;
+    final int bufferSize;
+    // null 이면 기록하지 않는다.
+    final StageMetrics metrics;
+    final LongAdder dropped = new LongAdder();
+    // null 이면 구독마다 timer에 등록한다.
+    final SharedTickSource ticks;
+
+    IntervalPub(long initialDelay, long period, TimeUnit unit, HashedWheelTimer timer) {
+        this(initialDelay, period, unit, timer, OverflowStrategy.ERROR, 1, null);
+    }
+
+    /** bufferSize는 BUFFER일 때만 쓴다. */
+    IntervalPub(long initialDelay, long period, TimeUnit unit, HashedWheelTimer timer,
+                OverflowStrategy strategy, int bufferSize, StageMetrics metrics) {
+        this(initialDelay, period, unit, timer, strategy, bufferSize, metrics, null);
+    }
+
+    /** SharedTickSource.interval에서 쓴다. 첫 값은 source의 다음 tick에 온다. */
+    IntervalPub(long period, TimeUnit unit, SharedTickSource ticks,
+                OverflowStrategy strategy, int bufferSize, StageMetrics metrics) {
+        this(0L, period, unit, ticks.timer, strategy, bufferSize, metrics, ticks);
+    }
+
+    private IntervalPub(long initialDelay, long period, TimeUnit unit, HashedWheelTimer timer,
+                        OverflowStrategy strategy, int bufferSize, StageMetrics metrics, SharedTickSource ticks) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period > 0 required but it was " + period);
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize > 0 required but it was " + bufferSize);
+        }
+        this.initialDelay = initialDelay;
+        this.period = period;
+        this.unit = Objects.requireNonNull(unit, "unit");
+        this.timer = Objects.requireNonNull(timer, "timer");
+        this.strategy = Objects.requireNonNull(strategy, "strategy");
+        this.bufferSize = bufferSize;
+        this.metrics = metrics;
+        this.ticks = ticks;
+    }
+
+    /** 모든 구독에서 버려진 값의 수 */
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Long> sub) {
+        IntervalSubscription s = new IntervalSubscription(sub, this);
+        sub.onSubscribe(s);
+        if (ticks != null) {
+            s.start(ticks.join(unit.toNanos(period), s));
+        } else {
+            s.start(timer.scheduleAtFixedRate(s, initialDelay, period, unit)::cancel);
+        }
+    }
+
+    static final class IntervalSubscription implements Subscription, Runnable {
+        final Subscriber<? super Long> downstream;
+        final IntervalPub parent;
+        final AtomicLong requested = new AtomicLong();
+        final AtomicInteger wip = new AtomicInteger();
+        // BUFFER일 때만 쓴다. 넣는 쪽은 timer 스레드 하나, 꺼내는 쪽은 drain 하나다.
+        final SpscArrayQueue<Long> queue;
+        // ERROR, DROP, LATEST일 때 보낼 값 하나
+        final AtomicReference<Long> latest = new AtomicReference<>();
+
+        // timer 취소 또는 SharedTickSource 그룹에서 빠지기
+        volatile Runnable stop;
+        volatile boolean cancelled;
+        volatile boolean done;
+        Throwable error;
+        // timer 스레드만 쓴다.
+        long count;
+
+        IntervalSubscription(Subscriber<? super Long> downstream, IntervalPub parent) {
+            this.downstream = downstream;
+            this.parent = parent;
+            this.queue = parent.strategy == OverflowStrategy.BUFFER ? new SpscArrayQueue<>(parent.bufferSize) : null;
+        }
+
+        void start(Runnable s) {
+            stop = s;
+            // onSubscribe 안에서 이미 cancel 되었다면 바로 취소한다.
+            if (cancelled || done) {
+                s.run();
+            }
+        }
+
+        /** timer 스레드에서 period마다 호출된다. 값을 넣어두기만 하고 기다리지 않는다. */
+        @Override
+        public void run() {
+            if (cancelled || done) {
+                return;
+            }
+            Long value = count++;
+            switch (parent.strategy) {
+                case ERROR:
+                    if (requested.get() == 0L) {
+                        fail(new IllegalStateException("Could not emit tick " + value + " due to lack of requests"));
+                        return;
+                    }
+                    offerLatest(value);
+                    break;
+                case DROP:
+                    if (requested.get() == 0L) {
+                        drop(1);
+                    } else {
+                        offerLatest(value);
+                    }
+                    break;
+                case LATEST:
+                    offerLatest(value);
+                    break;
+                default:
+                    if (!queue.offer(value)) {
+                        drop(1);
+                    }
+                    break;
+            }
+            drain();
+        }
+
+        /** 아직 나가지 못한 값이 있었다면 그 값은 버린다. */
+        void offerLatest(Long value) {
+            if (latest.getAndSet(value) != null) {
+                drop(1);
+            }
+        }
+
+        void drop(long n) {
+            parent.dropped.add(n);
+            StageMetrics m = parent.metrics;
+            if (m != null) {
+                m.recordDropped(n);
+            }
+        }
+
+        void fail(Throwable t) {
+            error = t;
+            done = true;
+            Runnable s = stop;
+            if (s != null) {
+                s.run();
+            }
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // 규약 3.9
+                fail(new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+                return;
+            }
+            for (;;) {
+                long r = requested.get();
+                long u = r + n;
+                if (u < 0L) {
+                    u = Long.MAX_VALUE;
+                }
+                if (requested.compareAndSet(r, u)) {
+                    break;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Runnable s = stop;
+            if (s != null) {
+                s.run();
+            }
+            drain();
+        }
+
+        Long poll() {
+            return queue != null ? queue.poll() : latest.getAndSet(null);
+        }
+
+        /** 요청량 안에서 쌓인 값을 보낸다. 한 번에 한 스레드만 들어온다. */
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (cancelled) {
+                    clear();
+                    return;
+                }
+                if (done) {
+                    clear();
+                    downstream.onError(error);
+                    return;
+                }
+                long r = requested.get();
+                long e = 0L;
+                while (e != r) {
+                    Long v = poll();
+                    if (v == null) {
+                        break;
+                    }
+                    downstream.onNext(v);
+                    e++;
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+                }
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            if (queue != null) {
+                queue.clear();
+            }
+            latest.lazySet(null);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package chapter3;
+
+import chapter2.AsyncLog;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * log를 찍는 방식에 따른 event loop 지연 시간 비교
+ * 스레드 하나짜리 executor를 event loop(reactor-netty의 ioWorkerCount=1)로 보고, 요청 하나마다 doOnNext 4번처럼 log를 4줄 남긴다.
+ * 그동안 다른 worker 스레드들도 계속 log를 남겨서 PrintStream lock을 두고 경쟁하게 만든다.
+ * 작업을 넣은 시점부터 event loop에서 실행이 시작될 때까지의 시간(대기 지연)을 잰다.
+ *
+ * println : System.out.println(getCurrentThread() + ...)
+ * async   : AsyncLog.log(...)
+ *
+ * 출력은 임시 파일로 보내고, 결과만 System.err로 찍는다.
+ */
+public class LogLatencyTest {
+    static final int REQUESTS = 50_000;
+    static final int WORKERS = 3;
+
+    static volatile boolean stop;
+
+    public static void main(String[] args) throws Exception {
+        File file = File.createTempFile("log-latency", ".log");
+        file.deleteOnExit();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(file)), true));
+        try {
+            for (int round = 0; round < 2; round++) {
+                report("println", run(false));
+                report("async  ", run(true));
+            }
+        } finally {
+            AsyncLog.flush();
+            System.setOut(original);
+        }
+        System.err.println("async dropped = " + AsyncLog.dropped());
+        /*
+        결과) 1 CPU, JDK 17, 첫 번째 round는 warm up
+        println p50 =      86 us, p99 =     450 us, p99.9 =    1315 us, max =    3733 us
+        async   p50 =       8 us, p99 =      78 us, p99.9 =     136 us, max =     635 us
+        - println은 event loop가 worker들과 PrintStream lock을 두고 경쟁하면서 꼬리 지연이 커진다.
+        - async는 buffer가 넘칠 때 worker 쪽 log를 버린다. (dropped 수로 확인)
+         */
+    }
+
+    static long[] run(boolean async) throws InterruptedException {
+        ExecutorService eventLoop = Executors.newSingleThreadExecutor(r -> new Thread(r, "event-loop"));
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        long[] lags = new long[REQUESTS];
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        stop = false;
+
+        for (int w = 0; w < WORKERS; w++) {
+            workers.execute(() -> {
+                int i = 0;
+                while (!stop) {
+                    log(async, "worker ", i++);
+                    // worker마다 초당 수십만 줄 정도로 맞춘다.
+                    if ((i & 15) == 0) {
+                        LockSupport.parkNanos(20_000L);
+                    }
+                }
+            });
+        }
+
+        for (int i = 0; i < REQUESTS; i++) {
+            int idx = i;
+            long submitted = System.nanoTime();
+            eventLoop.execute(() -> {
+                lags[idx] = System.nanoTime() - submitted;
+                log(async, "service1 = ", idx);
+                log(async, "response = ", idx);
+                log(async, "service2 = ", idx);
+                log(async, "asyncwork = ", idx);
+                done.countDown();
+            });
+            // 요청이 한꺼번에 몰리지 않도록 조금씩 넣는다.
+            if ((i & 15) == 0) {
+                TimeUnit.MICROSECONDS.sleep(50);
+            }
+        }
+        done.await();
+        stop = true;
+        eventLoop.shutdown();
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+        if (async) {
+            AsyncLog.flush();
+        }
+        return lags;
+    }
+
+    static void log(boolean async, String message, int value) {
+        if (async) {
+            AsyncLog.log(message, value);
+        } else {
+            System.out.println("[" + Thread.currentThread().getName() + "] " + message + value);
+        }
+    }
+
+    static void report(String name, long[] lags) {
+        long[] sorted = lags.clone();
+        Arrays.sort(sorted);
+        System.err.printf("%s p50 = %7d us, p99 = %7d us, p99.9 = %7d us, max = %7d us%n", name,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted[sorted.length - 1] / 1000);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1000;
+    }
+}
@@ -0,0 +1,16 @@
+package chapter3;
+
+import java.util.concurrent.Executor;
+
+/**
+ * subOnPub, pubOnPub(PublishOnPub)이 작업을 올리는 스케줄러
+ * WorkerScheduler(고정된 platform 스레드)와 VirtualThreadScheduler(virtual 스레드)가 있다.
+ */
+public interface OperatorScheduler {
+
+    /** 넣은 순서대로, 한 번에 하나씩 실행해주는 Executor (구독 하나에 하나) */
+    Executor createWorker();
+
+    /** 이후의 execute는 RejectedExecutionException을 던진다. */
+    void shutdown();
+}
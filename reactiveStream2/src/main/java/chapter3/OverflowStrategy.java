@@ -0,0 +1,16 @@
+package chapter3;
+
+/**
+ * 시간 기반 publisher(IntervalPub)에서 downstream의 요청보다 값이 빨리 생길 때의 처리 방법
+ * 어느 경우든 timer 스레드는 기다리지 않고, 쌓이는 값도 정해진 개수를 넘지 않는다.
+ */
+enum OverflowStrategy {
+    /** 요청이 없을 때 tick이 오면 onError로 끝낸다. (Flux.interval의 기본 동작) */
+    ERROR,
+    /** 요청이 없을 때 온 값은 버린다. (onBackpressureDrop) */
+    DROP,
+    /** 가장 최근 값 하나만 들고 있다가 요청이 오면 보낸다. 이전 값은 버린다. (onBackpressureLatest) */
+    LATEST,
+    /** 정해진 크기까지 모아두고, 가득 차면 새 값을 버린다. (onBackpressureBuffer(maxSize)) */
+    BUFFER
+}
@@ -0,0 +1,211 @@
+package chapter3;
+
+import chapter2.SpscArrayQueue;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 큐에 모아두고 한 번에 꺼내서 보내는 publishOn
+ * 원소마다 worker.execute(() -> sub.onNext(item))를 부르던 pubOnPub을 대신한다.
+ *
+ * 1. upstream에는 Long.MAX_VALUE 대신 prefetch만큼만 요청하고, 받은 값은 크기 prefetch의 SPSC ring buffer에 넣는다.
+ * 2. downstream으로 75%를 내보낼 때마다 그만큼 upstream에 다시 요청한다. (큐가 prefetch를 넘지 않는다.)
+ * 3. worker에는 작업이 없을 때만 drain을 하나 올리고, drain은 큐에 있는 만큼 downstream 요청량 안에서 전부 보낸다.
+ *    그래서 원소마다 lambda나 executor 큐 노드가 생기지 않는다.
+ * 4. onError는 큐에 남은 값을 기다리지 않고 바로 전달한다.
+ */
+final class PublishOnPub<T> implements Publisher<T> {
+    /** Reactor의 publishOn과 같은 기본 prefetch */
+    static final int DEFAULT_PREFETCH = 256;
+
+    final Publisher<T> source;
+    final OperatorScheduler scheduler;
+    final int prefetch;
+
+    PublishOnPub(Publisher<T> source, OperatorScheduler scheduler, int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch > 0 required but it was " + prefetch);
+        }
+        this.source = Objects.requireNonNull(source, "source");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> sub) {
+        source.subscribe(new PublishOnSub<>(sub, scheduler.createWorker(), prefetch));
+    }
+
+    static final class PublishOnSub<T> implements Subscriber<T>, Subscription, Runnable {
+        final Subscriber<? super T> downstream;
+        final Executor worker;
+        final int prefetch;
+        // 이만큼 내보낼 때마다 upstream에 다시 요청한다. (prefetch의 75%)
+        final int limit;
+        final SpscArrayQueue<T> queue;
+
+        final AtomicLong requested = new AtomicLong();
+        final AtomicInteger wip = new AtomicInteger();
+
+        Subscription upstream;
+        Throwable error;
+        volatile boolean done;
+        volatile boolean cancelled;
+
+        // drain에서만 쓴다.
+        int consumed;
+
+        PublishOnSub(Subscriber<? super T> downstream, Executor worker, int prefetch) {
+            this.downstream = downstream;
+            this.worker = worker;
+            this.prefetch = prefetch;
+            this.limit = prefetch - (prefetch >> 2);
+            this.queue = new SpscArrayQueue<>(prefetch);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            downstream.onSubscribe(this);
+            s.request(prefetch);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (done) {
+                return;
+            }
+            if (!queue.offer(item)) {
+                // 요청한 것보다 많이 보낸 upstream
+                upstream.cancel();
+                error = new IllegalStateException("publishOn queue is full: upstream ignored backpressure");
+                done = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                return;
+            }
+            error = t;
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // 규약 3.9
+                upstream.cancel();
+                error = new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n);
+                done = true;
+                schedule();
+                return;
+            }
+            for (;;) {
+                long r = requested.get();
+                long u = r + n;
+                if (u < 0L) {
+                    u = Long.MAX_VALUE;
+                }
+                if (requested.compareAndSet(r, u)) {
+                    break;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            upstream.cancel();
+            // drain이 돌고 있지 않다면 여기서 큐를 비운다. (돌고 있다면 drain이 비운다.)
+            if (wip.getAndIncrement() == 0) {
+                queue.clear();
+            }
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                worker.execute(this);
+            }
+        }
+
+        /** worker에서 실행되는 drain 루프 */
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                long r = requested.get();
+                long e = 0L;
+                while (e != r) {
+                    boolean d = done;
+                    T item = queue.poll();
+                    boolean empty = item == null;
+                    if (checkTerminated(d, empty)) {
+                        return;
+                    }
+                    if (empty) {
+                        break;
+                    }
+                    downstream.onNext(item);
+                    e++;
+                    if (++consumed == limit) {
+                        consumed = 0;
+                        upstream.request(limit);
+                    }
+                }
+                if (e == r && checkTerminated(done, queue.isEmpty())) {
+                    return;
+                }
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        boolean checkTerminated(boolean d, boolean empty) {
+            if (cancelled) {
+                queue.clear();
+                return true;
+            }
+            if (d) {
+                Throwable t = error;
+                if (t != null) {
+                    queue.clear();
+                    downstream.onError(t);
+                    return true;
+                }
+                if (empty) {
+                    downstream.onComplete();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package chapter3;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * pubOnPub의 처리량과 최대 heap 사용량 비교
+ * perItem : 예전 방식, 원소마다 worker.execute(() -> sub.onNext(item)), upstream에는 전부 요청한다.
+ * queued  : PublishOnPub, prefetch 크기의 큐에 모아서 한 번에 보내고 75%마다 다시 요청한다.
+ *
+ * fast : 생산자와 소비자 모두 빠를 때 초당 원소 수
+ * slow : 소비자가 원소마다 1us 정도 걸릴 때, 10ms마다 잰 heap 사용량과 아직 소비되지 않은 원소 수(in flight)의 최대값
+ *        heap은 시작 시점 대비이며 garbage도 포함된다.
+ * 생산자는 다른 scheduler(subOnPub)에서 요청받은 만큼만 보낸다.
+ */
+public class PublishOnTest {
+    static final int FAST_ITEMS = 10_000_000;
+    static final int SLOW_ITEMS = 2_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        WorkerScheduler producer = new WorkerScheduler(1, "producer");
+        WorkerScheduler consumer = new WorkerScheduler(1, "consumer");
+        for (int round = 0; round < 3; round++) {
+            fast("perItem", producer, consumer, false);
+            fast("queued ", producer, consumer, true);
+        }
+        slow("perItem", producer, consumer, false);
+        slow("queued ", producer, consumer, true);
+        producer.shutdown();
+        consumer.shutdown();
+        /*
+        결과) 1 CPU, JDK 17, -Xmx2g, fast는 마지막 round
+        perItem fast     12,898,544 items/sec
+        queued  fast     43,504,732 items/sec
+        perItem slow peak heap = 121 MB, max in flight = 1,922,560
+        queued  slow peak heap = 32 MB, max in flight = 256
+        - perItem은 소비자가 느리면 생산된 원소가 거의 전부 executor 큐에 쌓인다. (원소 수에 비례해서 늘어난다.)
+        - queued는 prefetch(256)개를 넘지 않는다. 남은 heap은 소비된 원소의 garbage다.
+         */
+    }
+
+    static Publisher<Integer> pipeline(int count, AtomicLong emitted, WorkerScheduler producer, WorkerScheduler consumer,
+                                       boolean queued) {
+        Publisher<Integer> source = SchedulerEx.subOnPub(rangePub(count, emitted), producer);
+        return queued ? SchedulerEx.pubOnPub(source, consumer) : perItemPubOn(source, consumer);
+    }
+
+    static void fast(String name, WorkerScheduler producer, WorkerScheduler consumer, boolean queued)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long received = consume(pipeline(FAST_ITEMS, null, producer, consumer, queued), 0, null);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s fast %,14.0f items/sec (%d items)%n", name, received / (elapsed / 1e9), received);
+    }
+
+    static void slow(String name, WorkerScheduler producer, WorkerScheduler consumer, boolean queued)
+            throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long base = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peak = new AtomicLong();
+        AtomicLong emitted = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong inFlight = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed() - base, Math::max);
+                inFlight.accumulateAndGet(emitted.get() - consumed.get(), Math::max);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        long received = consume(pipeline(SLOW_ITEMS, emitted, producer, consumer, queued), 1_000, consumed);
+        sampler.interrupt();
+        sampler.join();
+        System.out.printf("%s slow peak heap = %,d MB, max in flight = %,d (%d items)%n", name, peak.get() >> 20,
+                inFlight.get(), received);
+    }
+
+    /** 원소마다 workNanos만큼 바쁘게 기다리는 subscriber로 끝까지 받는다. consumed가 있다면 받은 수를 적어둔다. */
+    static long consume(Publisher<Integer> publisher, long workNanos, AtomicLong consumed) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long[] count = new long[1];
+        publisher.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                count[0]++;
+                if (consumed != null) {
+                    consumed.lazySet(count[0]);
+                }
+                if (workNanos != 0) {
+                    long end = System.nanoTime() + workNanos;
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                t.printStackTrace();
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        done.await();
+        return count[0];
+    }
+
+    /** 요청받은 만큼만 0부터 count개의 정수를 보낸다. emitted가 있다면 보낸 수를 적어둔다. */
+    static Publisher<Integer> rangePub(int count, AtomicLong emitted) {
+        return sub -> sub.onSubscribe(new Subscription() {
+            final AtomicLong requested = new AtomicLong();
+            int index;
+            volatile boolean cancelled;
+
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancelled = true;
+                    sub.onError(new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n));
+                    return;
+                }
+                // 요청량을 wip로도 쓴다. 0에서 올린 스레드만 보낸다.
+                if (addCap(requested, n) != 0L) {
+                    return;
+                }
+                long r = n;
+                for (;;) {
+                    long e = 0L;
+                    while (e != r && index < count) {
+                        if (cancelled) {
+                            return;
+                        }
+                        sub.onNext(index++);
+                        if (emitted != null) {
+                            emitted.lazySet(index);
+                        }
+                        e++;
+                    }
+                    if (index == count) {
+                        if (!cancelled) {
+                            sub.onComplete();
+                        }
+                        return;
+                    }
+                    r = requested.addAndGet(-e);
+                    if (r == 0L) {
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+        });
+    }
+
+    static long addCap(AtomicLong requested, long n) {
+        for (;;) {
+            long r = requested.get();
+            if (r == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            long u = r + n;
+            if (u < 0L) {
+                u = Long.MAX_VALUE;
+            }
+            if (requested.compareAndSet(r, u)) {
+                return r;
+            }
+        }
+    }
+
+    /** 예전 pubOnPub, 원소마다 worker에 작업을 하나씩 올린다. */
+    static <T> Publisher<T> perItemPubOn(Publisher<T> publisher, WorkerScheduler scheduler) {
+        return sub -> publisher.subscribe(new Subscriber<T>() {
+            final WorkerScheduler.Worker worker = scheduler.createWorker();
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                sub.onSubscribe(s);
+            }
+
+            @Override
+            public void onNext(T item) {
+                worker.execute(() -> sub.onNext(item));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                worker.execute(() -> sub.onError(t));
+            }
+
+            @Override
+            public void onComplete() {
+                worker.execute(sub::onComplete);
+            }
+        });
+    }
+}
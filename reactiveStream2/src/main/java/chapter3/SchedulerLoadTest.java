@@ -0,0 +1,156 @@
+package chapter3;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * subOnPub + pubOnPub에 구독 10,000개를 한꺼번에 걸었을 때의 초당 구독 수와 최대 스레드 수
+ * perSubscribe : 예전 방식, 구독마다 newSingleThreadExecutor를 두 개씩 만든다.
+ * shared       : CPU 수만큼의 스레드를 가진 WorkerScheduler를 subOn, pubOn이 같이 쓴다.
+ *
+ * 구독마다 값 10개를 받고, 전부 onComplete 될 때까지의 시간을 잰다.
+ */
+public class SchedulerLoadTest {
+    static final int SUBSCRIPTIONS = 10_000;
+    static final int ITEMS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 3; round++) {
+            run("perSubscribe", false);
+            run("shared      ", true);
+        }
+        /*
+        결과) 1 CPU, JDK 17, 마지막 round (시작 전 스레드 6개)
+        perSubscribe      5,942 subs/sec, peak threads = 52
+        shared          887,589 subs/sec, peak threads = 7
+        - perSubscribe는 구독마다 스레드 2개를 만들고 없애는 데 대부분의 시간을 쓴다. (CPU가 많을수록 동시에 살아있는 스레드도 늘어난다.)
+        - shared는 구독 수와 상관없이 스레드 수가 CPU 수로 고정된다.
+         */
+    }
+
+    static void run(String name, boolean shared) throws InterruptedException {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        mx.resetPeakThreadCount();
+        int before = mx.getThreadCount();
+
+        WorkerScheduler scheduler = shared ? new WorkerScheduler(Runtime.getRuntime().availableProcessors(), "worker") : null;
+        Publisher<Integer> source = rangePub(ITEMS);
+        Publisher<Integer> pipeline = shared
+                ? SchedulerEx.pubOnPub(SchedulerEx.subOnPub(source, scheduler), scheduler)
+                : perSubscribePubOn(perSubscribeSubOn(source));
+
+        CountDownLatch done = new CountDownLatch(SUBSCRIPTIONS);
+        AtomicLong received = new AtomicLong();
+        long start = System.nanoTime();
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            pipeline.subscribe(new Subscriber<Integer>() {
+                int count;
+
+                @Override
+                public void onSubscribe(Subscription s) {
+                    s.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    count++;
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    received.addAndGet(count);
+                    done.countDown();
+                }
+            });
+        }
+        if (!done.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(name + " timed out");
+        }
+        long elapsed = System.nanoTime() - start;
+        if (received.get() != (long) SUBSCRIPTIONS * ITEMS) {
+            throw new IllegalStateException(name + " received " + received.get());
+        }
+        System.out.printf("%s %,10.0f subs/sec, peak threads = %d (before %d)%n", name,
+                SUBSCRIPTIONS / (elapsed / 1e9), mx.getPeakThreadCount(), before);
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        // 다음 round 전에 이전 스레드들이 정리될 시간을 준다.
+        TimeUnit.MILLISECONDS.sleep(500);
+    }
+
+    static Publisher<Integer> rangePub(int count) {
+        return sub -> sub.onSubscribe(new Subscription() {
+            boolean done;
+
+            @Override
+            public void request(long n) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                for (int i = 0; i < count; i++) {
+                    sub.onNext(i);
+                }
+                sub.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+    }
+
+    /** 예전 subOnPub, 구독마다 스레드 하나 */
+    static <T> Publisher<T> perSubscribeSubOn(Publisher<T> publisher) {
+        return sub -> {
+            ExecutorService es = Executors.newSingleThreadExecutor();
+            es.execute(() -> publisher.subscribe(sub));
+            es.shutdown();
+        };
+    }
+
+    /** 예전 pubOnPub, subscriber마다 스레드 하나 */
+    static <T> Publisher<T> perSubscribePubOn(Publisher<T> publisher) {
+        return sub -> publisher.subscribe(new Subscriber<T>() {
+            final ExecutorService es = Executors.newSingleThreadExecutor();
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                sub.onSubscribe(s);
+            }
+
+            @Override
+            public void onNext(T item) {
+                es.execute(() -> sub.onNext(item));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                es.execute(() -> sub.onError(t));
+                es.shutdown();
+            }
+
+            @Override
+            public void onComplete() {
+                es.execute(sub::onComplete);
+                es.shutdown();
+            }
+        });
+    }
+}
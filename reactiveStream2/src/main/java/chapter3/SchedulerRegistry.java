@@ -0,0 +1,209 @@
+package chapter3;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 작업 종류(cpu, io, timer)마다 크기가 정해진 pool을 하나씩만 만들어 나눠 쓰는 Reactor Scheduler 모음
+ * 호출마다 Schedulers.newSingle을 만들던 FluxSchedulerEx.simpleFluxEx를 대신한다.
+ *
+ * cpu   : CPU 수만큼의 스레드, 큐 CPU_QUEUE
+ * io    : CPU 수 * 10 스레드, 큐 IO_QUEUE (blocking 작업)
+ * timer : 스레드 하나, delay, interval 용 (ScheduledThreadPoolExecutor, 큐 크기 제한 없음)
+ *
+ * 1. 스레드 수는 처음 정한 만큼으로 고정이다. 큐가 차면 RejectedExecutionException으로 거절한다. (Reactor는 onError로 넘긴다.)
+ * 2. pool마다 아래 meter를 scheduler 태그를 붙여 등록한다.
+ *    reactive.scheduler.queue.depth : 큐에서 기다리는 작업 수
+ *    reactive.scheduler.active      : 작업을 실행 중인 스레드 수
+ *    reactive.scheduler.saturation  : (실행 중 + 대기) / (스레드 수 + 큐 크기), 1이 되면 거절이 시작된다.
+ *    reactive.scheduler.wait        : 큐에 들어가서 실행되기까지 걸린 시간 (timer는 deadline보다 늦은 시간)
+ *    reactive.scheduler.rejected    : 거절된 작업 수
+ * 3. 스레드가 모두 바빠지면 queue.depth, saturation이 먼저 오르고 wait은 그 뒤에 늘어난다. 그래서 앞의 둘로 포화를 미리 본다.
+ */
+public final class SchedulerRegistry {
+    static final int CPU_QUEUE = 10_000;
+    static final int IO_QUEUE = 100_000;
+
+    static final class Holder {
+        static final SchedulerRegistry SHARED = new SchedulerRegistry(Metrics.globalRegistry);
+    }
+
+    final MeterRegistry registry;
+    final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    public SchedulerRegistry(MeterRegistry registry) {
+        this.registry = Objects.requireNonNull(registry, "registry");
+    }
+
+    /** 전역 registry(Metrics.globalRegistry)에 meter를 등록하는 공용 registry */
+    public static SchedulerRegistry shared() {
+        return Holder.SHARED;
+    }
+
+    public Scheduler cpu() {
+        return pool("cpu", Runtime.getRuntime().availableProcessors(), CPU_QUEUE).scheduler;
+    }
+
+    public Scheduler io() {
+        return pool("io", Runtime.getRuntime().availableProcessors() * 10, IO_QUEUE).scheduler;
+    }
+
+    public Scheduler timer() {
+        return pool("timer", 1, 0).scheduler;
+    }
+
+    /** 이름별 pool, 같은 이름이면 처음 만든 pool을 돌려준다. (크기도 처음 값을 따른다.) */
+    public Scheduler get(String name, int threads, int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity > 0 required but it was " + queueCapacity);
+        }
+        return pool(name, threads, queueCapacity).scheduler;
+    }
+
+    /** queueCapacity가 0이면 timer pool이다. */
+    Pool pool(String name, int threads, int queueCapacity) {
+        Objects.requireNonNull(name, "name");
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads > 0 required but it was " + threads);
+        }
+        return pools.computeIfAbsent(name, n -> new Pool(registry, n, threads, queueCapacity));
+    }
+
+    /** 모든 pool의 스레드를 멈춘다. 이후에는 모든 scheduler가 작업을 거절한다. (meter가 같은 pool을 계속 가리키도록 새로 만들지 않는다.) */
+    public void dispose() {
+        for (Pool pool : pools.values()) {
+            pool.scheduler.dispose();
+        }
+    }
+
+    /** 이름 하나의 pool과 meter */
+    static final class Pool implements RejectedExecutionHandler, ThreadFactory {
+        final String name;
+        final int threads;
+        final int queueCapacity;
+        final Timer wait;
+        final Counter rejected;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor;
+        final Scheduler scheduler;
+
+        Pool(MeterRegistry registry, String name, int threads, int queueCapacity) {
+            this.name = name;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.wait = Timer.builder("reactive.scheduler.wait").tag("scheduler", name)
+                    .publishPercentiles(0.5, 0.99).register(registry);
+            this.rejected = Counter.builder("reactive.scheduler.rejected").tag("scheduler", name).register(registry);
+            this.executor = queueCapacity == 0 ? new TimerExecutor(this) : new BoundedExecutor(this);
+            this.scheduler = Schedulers.fromExecutorService(executor, name);
+
+            Gauge.builder("reactive.scheduler.queue.depth", this, Pool::queueDepth).tag("scheduler", name).register(registry);
+            Gauge.builder("reactive.scheduler.active", this, Pool::active).tag("scheduler", name).register(registry);
+            Gauge.builder("reactive.scheduler.saturation", this, Pool::saturation).tag("scheduler", name).register(registry);
+        }
+
+        double queueDepth() {
+            return executor.getQueue().size();
+        }
+
+        double active() {
+            return executor.getActiveCount();
+        }
+
+        double saturation() {
+            // timer의 큐는 아직 때가 되지 않은 작업이므로 밀린 작업으로 세지 않는다.
+            double waiting = queueCapacity == 0 ? 0 : executor.getQueue().size();
+            return (executor.getActiveCount() + waiting) / (threads + queueCapacity);
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + "-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+            if (e.isShutdown()) {
+                throw new RejectedExecutionException("scheduler " + name + " is disposed");
+            }
+            rejected.increment();
+            throw new RejectedExecutionException("scheduler " + name + " is saturated, queue capacity " + queueCapacity);
+        }
+    }
+
+    /** 큐에 넣은 시각을 들고 있는 작업 */
+    static final class Queued implements Runnable {
+        final Runnable task;
+        final long enqueued = System.nanoTime();
+
+        Queued(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    static final class BoundedExecutor extends ThreadPoolExecutor {
+        final Pool pool;
+
+        BoundedExecutor(Pool pool) {
+            super(pool.threads, pool.threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(pool.queueCapacity), pool, pool);
+            this.pool = pool;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new Queued(command));
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            if (r instanceof Queued) {
+                pool.wait.record(System.nanoTime() - ((Queued) r).enqueued, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    static final class TimerExecutor extends ScheduledThreadPoolExecutor {
+        final Pool pool;
+
+        TimerExecutor(Pool pool) {
+            super(pool.threads, pool, pool);
+            this.pool = pool;
+            // cancel 된 delay 작업이 큐에 남아서 queue.depth를 부풀리지 않도록 한다.
+            setRemoveOnCancelPolicy(true);
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            if (r instanceof Delayed) {
+                long late = -((Delayed) r).getDelay(TimeUnit.NANOSECONDS);
+                pool.wait.record(Math.max(0L, late), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package chapter3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SchedulerRegistry 확인
+ * threads    : 예전 simpleFluxEx(호출마다 newSingle 두 개)와 registry를 1,000번 호출했을 때의 스레드 수
+ * saturation : 스레드 4개, 큐 1,000인 pool에 5ms 걸리는 작업을 점점 빠르게 넣으면서 (처리 한계 800/s)
+ *              1초마다 queue.depth, saturation(최대), wait p99, 거절 수를 본다.
+ */
+public class SchedulerRegistryLoadTest {
+    static final int CALLS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        threads("newSingle", false);
+        threads("registry ", true);
+        saturation();
+        /*
+        결과) 1 CPU, JDK 21, reactor-core 3.6.11
+        newSingle 1,000 calls: peak threads = 2,006, live threads = 2,006 (before 6)
+        registry  1,000 calls: peak threads =    17, live threads =    17 (before 6)
+        rate   400/s: depth =     1, saturation max = 0.008, wait p99 =      9 ms, rejected =    0
+        rate   700/s: depth =     1, saturation max = 0.007, wait p99 =      1 ms, rejected =    0
+        rate   900/s: depth =   120, saturation max = 0.124, wait p99 =    153 ms, rejected =    0
+        rate 1,100/s: depth =   316, saturation max = 0.319, wait p99 =    398 ms, rejected =    0
+        rate 1,500/s: depth =   715, saturation max = 0.716, wait p99 =    907 ms, rejected =    0
+        rate 2,500/s: depth = 1,000, saturation max = 1.000, wait p99 =  1,277 ms, rejected =  717
+        - newSingle은 호출마다 스레드가 두 개씩 생기고, 정리하지 않으므로 일이 끝나도 그대로 남는다. (1,000번에 2,000개)
+        - registry는 호출 수와 상관없이 cpu(1개), io(10개) pool의 스레드만 쓴다. (6 + 11 = 17)
+        - 400/s의 p99는 스레드가 처음 뜨는 시간이다.
+        - 한계(800/s)를 넘으면 queue.depth가 바로 쌓인다. wait은 작업이 실행될 때 기록되므로 depth / 처리량 만큼 늦게 보인다.
+        - 큐가 차면 늦게 실행하는 대신 거절하므로, wait은 큐 크기 / 처리량(약 1.25초)을 넘지 않는다.
+         */
+    }
+
+    static void threads(String name, boolean registry) throws InterruptedException {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        mx.resetPeakThreadCount();
+        int before = mx.getThreadCount();
+        SchedulerRegistry schedulers = new SchedulerRegistry(new SimpleMeterRegistry());
+        CountDownLatch done = new CountDownLatch(CALLS);
+        // 예전 코드가 남기는 스레드는 non-daemon이라서, 재고 나서 정리하지 않으면 JVM이 끝나지 않는다.
+        List<Scheduler> leaked = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++) {
+            Scheduler pub = registry ? schedulers.cpu() : Schedulers.newSingle("pub");
+            Scheduler sub = registry ? schedulers.io() : Schedulers.newSingle("sub");
+            Flux.range(1, 10)
+                    .publishOn(pub)
+                    .subscribeOn(sub)
+                    .subscribe(item -> {
+                    }, t -> done.countDown(), done::countDown);
+            if (!registry) {
+                // 예전 코드는 sub를 disposeGracefully()의 Mono를 Scheduler로 cast 해서 넘겼다. (ClassCastException)
+                // 그래서 둘 다 정리하지 않는 것으로 본다. (subscribe 직후 dispose 하면 subscribeOn 작업이 취소되어 끝나지 않는다.)
+                leaked.add(pub);
+                leaked.add(sub);
+            }
+        }
+        if (!done.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(name + " timed out");
+        }
+        System.out.printf("%s %,d calls: peak threads = %,5d, live threads = %,5d (before %d)%n",
+                name, CALLS, mx.getPeakThreadCount(), mx.getThreadCount(), before);
+        leaked.forEach(Scheduler::dispose);
+        schedulers.dispose();
+    }
+
+    static void saturation() throws InterruptedException {
+        SchedulerRegistry schedulers = new SchedulerRegistry(new SimpleMeterRegistry());
+        SchedulerRegistry.Pool pool = schedulers.pool("load", 4, 1_000);
+        for (int rate : new int[]{400, 700, 900, 1_100, 1_500, 2_500}) {
+            long[] waits = new long[rate];
+            double rejectedBefore = pool.rejected.count();
+            double maxSaturation = 0;
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            long start = System.nanoTime();
+            for (int i = 0; i < rate; i++) {
+                long submitted = start + interval * i;
+                long sleep = submitted - System.nanoTime();
+                if (sleep > 0) {
+                    LockSupport.parkNanos(sleep);
+                }
+                int index = i;
+                try {
+                    pool.executor.execute(() -> {
+                        waits[index] = System.nanoTime() - submitted;
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                    });
+                } catch (RejectedExecutionException e) {
+                    waits[index] = -1;
+                }
+                maxSaturation = Math.max(maxSaturation, pool.saturation());
+            }
+            double depth = pool.queueDepth();
+            // 남은 작업이 끝나야 wait이 전부 채워진다. (다음 단계도 빈 큐에서 시작한다.)
+            while (pool.queueDepth() > 0 || pool.active() > 0) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            long[] executed = Arrays.stream(waits).filter(w -> w >= 0).sorted().toArray();
+            System.out.printf("rate %,5d/s: depth = %,5.0f, saturation max = %.3f, wait p99 = %,6d ms, rejected = %4.0f%n",
+                    rate, depth, maxSaturation,
+                    executed.length == 0 ? 0 : executed[(int) (executed.length * 0.99)] / 1_000_000,
+                    pool.rejected.count() - rejectedBefore);
+        }
+        schedulers.dispose();
+    }
+}
@@ -0,0 +1,148 @@
+package chapter3;
+
+import chapter2.StageMetrics;
+import org.reactivestreams.Publisher;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 같은 period의 interval 구독들이 tick 하나를 나눠 쓰게 하는 tick source
+ * 구독마다 timer를 하나씩 등록하면, 200ms 간격 구독이 천 개일 때 거의 같은 시각에 timer 천 개가 실행된다.
+ *
+ * 1. period가 같은 구독은 한 그룹(Group)이 되고, 그룹마다 HashedWheelTimer에 반복 timer 하나만 등록한다.
+ * 2. tick은 source를 만든 시각부터 period의 배수 시각(phase)에 맞춰 온다. 그래서 새 구독의 첫 값은 다음 tick에 온다. (최대 period만큼 늦다.)
+ * 3. tick이 오면 그룹의 구독 전체에 돌리고, 값(0, 1, 2, ...), 요청량, overflow, cancel은 구독마다 따로 처리한다. (IntervalPub.IntervalSubscription)
+ * 4. 구독 목록은 timer 스레드만 쓰는 배열이라, tick마다 lock 없이 들어온 순서대로 돈다.
+ *    들어오는 구독은 큐로 넘기고, cancel 된 구독은 다음 tick에 배열에서 빠진다.
+ * 5. 그룹의 구독이 0이 되면 다음 tick에 timer도 취소하고, 다시 생기면 등록한다.
+ *
+ * 구독 수가 늘어도 timer 실행 횟수는 그룹(period) 수만큼이다. 대신 tick 하나에서 모든 구독의 onNext가 차례로 불린다.
+ */
+public final class SharedTickSource {
+    static final class Holder {
+        static final SharedTickSource SHARED = new SharedTickSource(HashedWheelTimer.shared());
+    }
+
+    final HashedWheelTimer timer;
+    final long startTime = System.nanoTime();
+    final Map<Long, Group> groups = new ConcurrentHashMap<>();
+
+    public SharedTickSource(HashedWheelTimer timer) {
+        this.timer = Objects.requireNonNull(timer, "timer");
+    }
+
+    /** 공용 HashedWheelTimer를 쓰는 공용 source */
+    public static SharedTickSource shared() {
+        return Holder.SHARED;
+    }
+
+    /** period마다 0, 1, 2, ... 를 보내는 publisher, 요청이 없는데 tick이 오면 에러 (Flux.interval과 같다.) */
+    public Publisher<Long> interval(long period, TimeUnit unit) {
+        return interval(period, unit, OverflowStrategy.ERROR, 1, null);
+    }
+
+    Publisher<Long> interval(long period, TimeUnit unit, OverflowStrategy strategy, int bufferSize, StageMetrics metrics) {
+        return new IntervalPub(period, unit, this, strategy, bufferSize, metrics);
+    }
+
+    /** 지금 timer가 등록된 그룹 수 */
+    public int activeGroups() {
+        int n = 0;
+        for (Group g : groups.values()) {
+            if (g.timeout != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** 그룹에 넣고, 그룹에서 빼는 작업을 돌려준다. (여러 번 불러도 한 번만 빠진다.) */
+    Runnable join(long periodNanos, IntervalPub.IntervalSubscription s) {
+        Group group = groups.computeIfAbsent(periodNanos, Group::new);
+        group.add(s);
+        AtomicBoolean left = new AtomicBoolean();
+        return () -> {
+            if (left.compareAndSet(false, true)) {
+                group.remove();
+            }
+        };
+    }
+
+    /** period가 같은 구독 묶음, timer 스레드에서 tick마다 run()이 불린다. */
+    final class Group implements Runnable {
+        final long periodNanos;
+        // 새로 들어온 구독, tick마다 timer 스레드가 members로 옮긴다.
+        final Queue<IntervalPub.IntervalSubscription> joined = new ConcurrentLinkedQueue<>();
+        // 아래 둘은 this를 lock으로 쓰는 add, remove, run의 마지막 부분에서만 바꾼다.
+        int count;
+        volatile HashedWheelTimer.Timeout timeout;
+
+        // timer 스레드만 쓴다. 들어온 순서대로 돌리고, 끝난 구독은 돌리면서 빼낸다.
+        IntervalPub.IntervalSubscription[] members = new IntervalPub.IntervalSubscription[16];
+        int size;
+
+        Group(long periodNanos) {
+            this.periodNanos = periodNanos;
+        }
+
+        synchronized void add(IntervalPub.IntervalSubscription s) {
+            joined.offer(s);
+            count++;
+            if (timeout == null) {
+                // 다음 period 배수 시각까지 기다렸다가 시작한다.
+                long elapsed = System.nanoTime() - startTime;
+                long delay = periodNanos - elapsed % periodNanos;
+                timeout = timer.scheduleAtFixedRate(this, delay, periodNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /** 구독은 cancel 되었다는 표시만 남기고, 배열에서는 다음 tick에 빠진다. */
+        synchronized void remove() {
+            count--;
+        }
+
+        @Override
+        public void run() {
+            IntervalPub.IntervalSubscription s;
+            while ((s = joined.poll()) != null) {
+                if (size == members.length) {
+                    members = Arrays.copyOf(members, size * 2);
+                }
+                members[size++] = s;
+            }
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                s = members[i];
+                if (s.cancelled || s.done) {
+                    continue;
+                }
+                s.run();
+                if (!s.cancelled && !s.done) {
+                    members[n++] = s;
+                }
+            }
+            Arrays.fill(members, n, size, null);
+            size = n;
+            if (n == 0) {
+                stopIfEmpty();
+            }
+        }
+
+        /** 남은 구독이 없으면 timer를 취소한다. 그 사이에 들어온 구독이 있으면 그대로 둔다. */
+        synchronized void stopIfEmpty() {
+            if (count == 0 && timeout != null) {
+                timeout.cancel();
+                timeout = null;
+                joined.clear();
+                members = new IntervalPub.IntervalSubscription[16];
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package chapter3;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * blocking 하는 구독자 100,000개를 동시에 걸었을 때 platform 스레드 pool과 virtual 스레드 비교 (JDK 21)
+ * platform : WorkerScheduler(1,000) / Schedulers.newBoundedElastic(1,000)
+ * virtual  : VirtualThreadScheduler / asReactorScheduler()
+ *
+ * 구독마다 값 하나를 받아서 onNext 안에서 50ms sleep 한다. (blocking IO 대신)
+ * 전부 끝날 때까지의 초당 구독 수, 최대 스레드 수, 최대 heap 사용량, 최대 RSS(Linux, 스레드 stack 포함)를 본다.
+ * 스케줄러는 실행할 때마다 새로 만들고 끝나면 정리하므로, 스레드 수에는 앞에서 만든 pool의 스레드가 섞이지 않는다. (virtual 스레드는 세지 않는다.)
+ */
+public class VirtualThreadLoadTest {
+    static final int SUBSCRIPTIONS = 100_000;
+    static final long BLOCK_MS = 50;
+    static final int PLATFORM_THREADS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 2; round++) {
+            WorkerScheduler platform = new WorkerScheduler(PLATFORM_THREADS, "platform");
+            run("pubOnPub platform", () -> operatorRun(platform));
+            platform.shutdown();
+            awaitExit("platform");
+
+            VirtualThreadScheduler virtual = new VirtualThreadScheduler("virtual");
+            run("pubOnPub virtual ", () -> operatorRun(virtual));
+            virtual.shutdown();
+
+            Scheduler elastic = Schedulers.newBoundedElastic(PLATFORM_THREADS, Integer.MAX_VALUE, "elastic", 60, true);
+            run("Flux     platform", () -> fluxRun(elastic));
+            elastic.dispose();
+            awaitExit("elastic");
+
+            VirtualThreadScheduler reactorVirtual = new VirtualThreadScheduler("virtual");
+            run("Flux     virtual ", () -> fluxRun(reactorVirtual.asReactorScheduler()));
+            reactorVirtual.shutdown();
+        }
+        /*
+        결과) 1 CPU, JDK 21, 마지막 round
+        pubOnPub platform    19,075 subs/sec, peak threads = 1,008, heap =  139,634 KB, rss =    4,600 KB
+        pubOnPub virtual     51,791 subs/sec, peak threads =     8, heap =  214,797 KB, rss =  116,344 KB
+        Flux     platform    18,951 subs/sec, peak threads = 1,009, heap =   71,140 KB, rss =   35,588 KB
+        Flux     virtual    196,358 subs/sec, peak threads =     8, heap =  124,861 KB, rss =        0 KB
+        - platform은 스레드 1,000개가 50ms씩 막히므로 초당 20,000 구독이 상한이고, 실제로 19,000 정도이다.
+        - virtual은 platform 스레드가 8개(JVM 기본 스레드와 carrier)뿐이고, 상한 없이 구독을 거는 속도(1 CPU)만큼 끝난다.
+          pubOnPub이 Flux보다 느린 것은 구독마다 Lane 작업(onSubscribe, request, onNext, onComplete)이 여러 번 돌기 때문으로 보인다.
+        - sleep 중인 virtual 스레드의 stack이 heap에 올라가서 heap 사용량은 platform보다 크다.
+        - rss는 시작할 때 대비 늘어난 양이다. JVM이 앞 round에서 잡은 메모리를 다시 쓰므로 뒤로 갈수록 작게 나온다.
+          (첫 round에서 platform은 160~190MB 늘었다. 스레드 1,000개의 stack)
+         */
+    }
+
+    interface Pipeline {
+        /** 구독을 전부 걸고, 끝날 때 countDown 할 latch를 돌려준다. */
+        CountDownLatch start();
+    }
+
+    static void run(String name, Pipeline pipeline) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        threads.resetPeakThreadCount();
+        long baseHeap = memory.getHeapMemoryUsage().getUsed();
+        long baseRss = rssKb();
+
+        long start = System.nanoTime();
+        CountDownLatch done = pipeline.start();
+        long maxHeap = 0;
+        long maxRss = 0;
+        // 끝날 때까지 10ms마다 사용량을 본다.
+        while (!done.await(10, TimeUnit.MILLISECONDS)) {
+            maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed() - baseHeap);
+            maxRss = Math.max(maxRss, rssKb() - baseRss);
+            if (System.nanoTime() - start > TimeUnit.MINUTES.toNanos(2)) {
+                throw new IllegalStateException(name + " timed out, remaining " + done.getCount());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s %,9.0f subs/sec, peak threads = %,5d, heap = %,8d KB, rss = %,8d KB%n", name,
+                SUBSCRIPTIONS / (elapsed / 1e9), threads.getPeakThreadCount(), maxHeap >> 10, maxRss);
+        TimeUnit.MILLISECONDS.sleep(500);
+    }
+
+    /** 정리한 pool의 스레드(이름이 prefix로 시작)가 모두 끝날 때까지 기다린다. */
+    static void awaitExit(String prefix) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().startsWith(prefix))) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(prefix + " threads did not exit");
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    static CountDownLatch operatorRun(OperatorScheduler scheduler) {
+        CountDownLatch done = new CountDownLatch(SUBSCRIPTIONS);
+        Publisher<Integer> pipeline = SchedulerEx.pubOnPub(SchedulerLoadTest.rangePub(1), scheduler);
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            pipeline.subscribe(new Subscriber<Integer>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                    s.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    block();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    t.printStackTrace();
+                    done.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    done.countDown();
+                }
+            });
+        }
+        return done;
+    }
+
+    static CountDownLatch fluxRun(Scheduler scheduler) {
+        CountDownLatch done = new CountDownLatch(SUBSCRIPTIONS);
+        Flux<Integer> pipeline = Flux.range(0, 1)
+                .publishOn(scheduler)
+                .doOnNext(item -> block());
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            pipeline.subscribe(item -> {
+            }, t -> {
+                t.printStackTrace();
+                done.countDown();
+            }, done::countDown);
+        }
+        return done;
+    }
+
+    static void block() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(BLOCK_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** /proc/self/status의 VmRSS (KB), Linux가 아니면 0 */
+    static long rssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 측정만 못 할 뿐이다.
+        }
+        return 0L;
+    }
+}
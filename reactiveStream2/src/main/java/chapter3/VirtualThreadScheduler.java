@@ -0,0 +1,221 @@
+package chapter3;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * virtual 스레드(JDK 21)에서 작업을 실행하는 스케줄러
+ * 구독자가 sleep, IO 같은 blocking 작업을 할 때 WorkerScheduler 대신 쓴다.
+ *
+ * 1. createWorker()는 Lane을 돌려준다. Lane은 WorkerScheduler.Worker처럼 wip로 작업 순서를 지킨다.
+ * 2. Lane에 작업이 생기면 virtual 스레드를 하나 띄워서 큐가 빌 때까지 실행하고, 비면 스레드는 끝난다.
+ *    blocking 되면 carrier(platform) 스레드를 놓아주므로, blocking 중인 구독 수만큼 OS 스레드가 필요하지 않다.
+ * 3. asReactorScheduler()는 같은 executor를 Reactor의 subscribeOn, publishOn에 넘길 수 있게 감싼다.
+ *    Reactor의 Worker도 Lane 하나를 쓰므로, 한 Worker에 넣은 작업은 넣은 순서대로 하나씩 실행된다.
+ *
+ * synchronized 안에서 blocking 하면 carrier 스레드가 같이 묶이므로(pinning), 구독자 쪽은 Lock을 쓰는 것이 좋다.
+ * CPU만 쓰는 작업이라면 WorkerScheduler가 더 빠르다. (스레드 전환이 없다.)
+ */
+public final class VirtualThreadScheduler implements OperatorScheduler {
+    static final class Holder {
+        static final VirtualThreadScheduler SHARED = new VirtualThreadScheduler("virtual");
+    }
+
+    final String name;
+    final ExecutorService executor;
+
+    public VirtualThreadScheduler(String namePrefix) {
+        this.name = namePrefix;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix + "-", 0).factory());
+    }
+
+    /** 공용 스케줄러, virtual 스레드는 carrier pool(ForkJoinPool)을 같이 쓰므로 하나면 충분하다. */
+    public static VirtualThreadScheduler shared() {
+        return Holder.SHARED;
+    }
+
+    @Override
+    public Lane createWorker() {
+        return new Lane(executor);
+    }
+
+    /**
+     * Flux.subscribeOn, publishOn에 넘길 Reactor Scheduler, Worker마다 Lane 하나를 쓴다.
+     * Schedulers.fromExecutorService로 감싸면 Worker의 작업이 각자 virtual 스레드에서 동시에 실행되어 순서가 깨진다.
+     * delay, 주기 실행은 지원하지 않는다. (RejectedExecutionException)
+     */
+    public Scheduler asReactorScheduler() {
+        return new ReactorScheduler(executor);
+    }
+
+    /** 실행 중인 virtual 스레드는 interrupt 한다. */
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    static final class ReactorScheduler implements Scheduler {
+        final ExecutorService executor;
+
+        ReactorScheduler(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            Task t = new Task(Schedulers.onSchedule(task), null);
+            try {
+                executor.execute(t);
+            } catch (RejectedExecutionException e) {
+                throw Exceptions.failWithRejected(e);
+            }
+            return t;
+        }
+
+        @Override
+        public Worker createWorker() {
+            return new ReactorWorker(new Lane(executor));
+        }
+
+        /** executor를 같이 쓰므로 VirtualThreadScheduler.shutdown()과 같다. */
+        @Override
+        public void dispose() {
+            executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return executor.isShutdown();
+        }
+    }
+
+    /** 작업을 Lane에 넣는 Reactor Worker, dispose 하면 아직 실행되지 않은 작업은 건너뛴다. */
+    static final class ReactorWorker implements Scheduler.Worker {
+        final Lane lane;
+        final Disposable.Composite tasks = Disposables.composite();
+
+        ReactorWorker(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            Task t = new Task(Schedulers.onSchedule(task), tasks);
+            if (!tasks.add(t)) {
+                throw Exceptions.failWithRejected();
+            }
+            try {
+                lane.execute(t);
+            } catch (RejectedExecutionException e) {
+                tasks.remove(t);
+                throw Exceptions.failWithRejected(e);
+            }
+            return t;
+        }
+
+        @Override
+        public void dispose() {
+            tasks.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return tasks.isDisposed();
+        }
+    }
+
+    /** dispose 되면 실행하지 않는 작업, 끝나면 Worker의 목록에서 빠진다. */
+    static final class Task implements Runnable, Disposable {
+        final Runnable task;
+        final Disposable.Composite parent;
+        volatile boolean disposed;
+
+        Task(Runnable task, Disposable.Composite parent) {
+            this.task = task;
+            this.parent = parent;
+        }
+
+        @Override
+        public void run() {
+            if (disposed) {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                disposed = true;
+                if (parent != null) {
+                    parent.remove(this);
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                if (parent != null) {
+                    parent.remove(this);
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    /** 작업 순서를 지켜주는 실행 단위, 실행할 작업이 있을 때만 virtual 스레드를 가진다. */
+    public static final class Lane implements Executor, Runnable {
+        final ExecutorService executor;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger wip = new AtomicInteger();
+
+        Lane(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("scheduler is shut down");
+            }
+            tasks.offer(task);
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = wip.get();
+            for (;;) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        Thread current = Thread.currentThread();
+                        current.getUncaughtExceptionHandler().uncaughtException(current, t);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
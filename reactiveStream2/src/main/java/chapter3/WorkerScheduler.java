@@ -0,0 +1,196 @@
+package chapter3;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 고정된 수의 스레드를 여러 구독이 나눠 쓰는 스케줄러
+ * subOnPub, pubOnPub이 구독마다 newSingleThreadExecutor를 만들던 것을 대신한다.
+ *
+ * 1. createWorker()는 스레드가 아니라 작업 순서만 보장하는 가벼운 Worker를 돌려준다. (구독 하나에 Worker 하나)
+ * 2. Worker는 만들 때 정해진 스레드(home) 하나에 고정되어, 작업이 생기면 그 스레드의 큐에 들어간다.
+ * 3. Worker의 작업은 wip로 한 번에 한 스레드에서만 실행되므로, 어느 스레드에서 실행되든 순서가 유지된다.
+ * 4. 할 일이 없는 스레드는 다른 스레드 큐의 뒤쪽에서 Worker를 통째로 가져와서(work stealing) 대신 실행한다.
+ */
+public final class WorkerScheduler implements OperatorScheduler {
+    // Worker 하나가 한 번에 실행하는 최대 작업 수, 넘으면 큐 뒤로 다시 넣어서 다른 Worker에게 차례를 넘긴다.
+    static final int BATCH = 256;
+
+    static final class Holder {
+        static final WorkerScheduler SHARED =
+                new WorkerScheduler(Runtime.getRuntime().availableProcessors(), "worker");
+    }
+
+    final PoolThread[] threads;
+    final AtomicInteger next = new AtomicInteger();
+    volatile boolean shutdown;
+
+    public WorkerScheduler(int parallelism, String namePrefix) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism > 0 required but it was " + parallelism);
+        }
+        threads = new PoolThread[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            threads[i] = new PoolThread(this, i, namePrefix + "-" + i);
+        }
+        for (PoolThread t : threads) {
+            t.start();
+        }
+    }
+
+    /** CPU 수만큼의 daemon 스레드를 가진 공용 스케줄러 */
+    public static WorkerScheduler shared() {
+        return Holder.SHARED;
+    }
+
+    /** 스레드 하나에 round-robin으로 고정된 Worker를 만든다. */
+    @Override
+    public Worker createWorker() {
+        int index = Math.floorMod(next.getAndIncrement(), threads.length);
+        return new Worker(threads[index]);
+    }
+
+    public int threadCount() {
+        return threads.length;
+    }
+
+    /** 남은 작업은 버리고 스레드를 멈춘다. */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (PoolThread t : threads) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /** 작업 순서를 지켜주는 실행 단위, 스레드를 가지지 않는다. */
+    public static final class Worker implements Executor, Runnable {
+        final PoolThread home;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger wip = new AtomicInteger();
+
+        Worker(PoolThread home) {
+            this.home = home;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (home.scheduler.shutdown) {
+                throw new RejectedExecutionException("scheduler is shut down");
+            }
+            tasks.offer(task);
+            // 실행 중이 아니었다면 home 스레드 큐에 올린다. 실행 중이라면 drain 루프가 이어서 처리한다.
+            if (wip.getAndIncrement() == 0) {
+                home.submit(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = wip.get();
+            int done = 0;
+            for (;;) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        Thread current = Thread.currentThread();
+                        current.getUncaughtExceptionHandler().uncaughtException(current, t);
+                    }
+                    if (++done == BATCH && !tasks.isEmpty()) {
+                        // wip는 0이 아닌 채로 두고 다시 줄을 선다. (그동안 다른 스레드가 실행하지 않는다.)
+                        home.submit(this);
+                        return;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    static final class PoolThread extends Thread {
+        final WorkerScheduler scheduler;
+        final int index;
+        final ConcurrentLinkedDeque<Worker> runQueue = new ConcurrentLinkedDeque<>();
+        final AtomicBoolean sleeping = new AtomicBoolean();
+
+        PoolThread(WorkerScheduler scheduler, int index, String name) {
+            super(name);
+            this.scheduler = scheduler;
+            this.index = index;
+            setDaemon(true);
+        }
+
+        void submit(Worker worker) {
+            runQueue.offer(worker);
+            if (!wake(this)) {
+                // home 스레드가 바쁘다면 쉬고 있는 다른 스레드가 가져갈 수 있도록 하나 깨운다.
+                for (PoolThread t : scheduler.threads) {
+                    if (t != this && wake(t)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        static boolean wake(PoolThread t) {
+            if (t.sleeping.get() && t.sleeping.compareAndSet(true, false)) {
+                LockSupport.unpark(t);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void run() {
+            while (!scheduler.shutdown) {
+                Worker w = runQueue.pollFirst();
+                if (w == null) {
+                    w = steal();
+                }
+                if (w != null) {
+                    w.run();
+                    continue;
+                }
+                sleeping.set(true);
+                // sleeping을 켠 뒤에 한 번 더 확인해야 그 사이에 들어온 작업을 놓치지 않는다.
+                if (!runQueue.isEmpty() || hasStealable() || scheduler.shutdown) {
+                    sleeping.set(false);
+                    continue;
+                }
+                LockSupport.park(this);
+                sleeping.set(false);
+            }
+        }
+
+        Worker steal() {
+            PoolThread[] all = scheduler.threads;
+            for (int i = 1; i < all.length; i++) {
+                Worker w = all[(index + i) % all.length].runQueue.pollLast();
+                if (w != null) {
+                    return w;
+                }
+            }
+            return null;
+        }
+
+        boolean hasStealable() {
+            for (PoolThread t : scheduler.threads) {
+                if (!t.runQueue.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
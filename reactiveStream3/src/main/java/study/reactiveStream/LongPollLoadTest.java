@@ -0,0 +1,115 @@
+package study.reactiveStream;
+
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기다리는 요청 100,000개에서 등록, timeout, /dr/count, /dr/event에 해당하는 작업에 걸리는 시간
+ * queue    : 예전 MyController, ConcurrentLinkedDeque에 넣고 돌면서 setResult + remove(dr)
+ *            timeout 된 요청은 예전 코드에서는 빠지지 않으므로, onTimeout에서 remove(dr) 한다고 가정한다.
+ * registry : LongPollRegistry
+ *
+ * 등록한 요청 중 절반(하나 걸러 하나)이 timeout 된 뒤에 count, event를 부른다.
+ * 서버 없이 DeferredResult만 만들어서 재므로, setResult는 결과를 저장만 한다. (실제로는 응답 dispatch가 더 붙는다.)
+ */
+public class LongPollLoadTest {
+    static final int WAITERS = 100_000;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            queue();
+            registry();
+        }
+        /*
+        결과) 1 CPU, JDK 17, 마지막 round (waiters는 timeout 뒤에 남은 수)
+        queue    50,000 waiters: register =   4,191 us, timeout half =   9,005,841 us, count =    465 us, event =   3,142 us
+        registry 50,000 waiters: register =  32,408 us, timeout half =      10,162 us, count =      8 us, event =  13,356 us
+        - queue의 remove(dr)는 앞에서부터 찾으므로, 중간의 요청이 빠질 때마다 O(n)이다. 50,000번이면 9초가 걸린다.
+          (event에서는 맨 앞 원소만 지우므로 빠르다. 대신 예전 코드처럼 timeout을 빼지 않으면 count가 틀리고 계속 쌓인다.)
+        - registry는 timeout도 O(1)이고, count는 목록을 돌지 않는다. event는 shard마다 목록을 바꿔치고 lock 밖에서 응답한다.
+        - registry의 등록은 Waiter, callback 객체 만큼 느리다. (요청 하나에 0.3us 정도, 실행마다 편차가 크다.)
+        - event로 모두 빠지면 topic도 map에서 지워진다. (끝에서 topics가 비었는지 확인한다.)
+         */
+    }
+
+    /** onTimeout에 넘긴 callback을 들고 있다가 timeout을 흉내낸다. */
+    static final class Parked extends DeferredResult<String> {
+        Runnable timeoutCallback;
+
+        Parked() {
+            super(600000L);
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            super.onTimeout(callback);
+            this.timeoutCallback = callback;
+        }
+    }
+
+    static void queue() {
+        Queue<DeferredResult<String>> results = new ConcurrentLinkedDeque<>();
+        List<Parked> parked = new ArrayList<>(WAITERS);
+        long start = System.nanoTime();
+        for (int i = 0; i < WAITERS; i++) {
+            Parked dr = new Parked();
+            dr.onTimeout(() -> results.remove(dr));
+            results.add(dr);
+            parked.add(dr);
+        }
+        long registered = System.nanoTime();
+        timeoutHalf(parked);
+        long timedOut = System.nanoTime();
+        int count = results.size();
+        long counted = System.nanoTime();
+        for (DeferredResult<String> dr : results) {
+            dr.setResult("Hello event");
+            results.remove(dr);
+        }
+        long published = System.nanoTime();
+        print("queue   ", count, start, registered, timedOut, counted, published);
+    }
+
+    static void registry() {
+        LongPollRegistry<String> results = new LongPollRegistry<>();
+        List<Parked> parked = new ArrayList<>(WAITERS);
+        long start = System.nanoTime();
+        for (int i = 0; i < WAITERS; i++) {
+            Parked dr = new Parked();
+            results.register("default", dr);
+            parked.add(dr);
+        }
+        long registered = System.nanoTime();
+        timeoutHalf(parked);
+        long timedOut = System.nanoTime();
+        int count = (int) results.count();
+        long counted = System.nanoTime();
+        int delivered = results.publish("default", "Hello event");
+        long published = System.nanoTime();
+        if (delivered != WAITERS / 2 || results.count() != 0 || !results.topics.isEmpty()) {
+            throw new IllegalStateException("delivered " + delivered + ", remaining " + results.count()
+                    + ", topics " + results.topics.size());
+        }
+        print("registry", count, start, registered, timedOut, counted, published);
+    }
+
+    static void timeoutHalf(List<Parked> parked) {
+        for (int i = 0; i < parked.size(); i += 2) {
+            parked.get(i).timeoutCallback.run();
+        }
+    }
+
+    static void print(String name, int count, long start, long registered, long timedOut, long counted, long published) {
+        System.out.printf("%s %,d waiters: register = %,7d us, timeout half = %,11d us, count = %,6d us, event = %,7d us%n",
+                name, count,
+                TimeUnit.NANOSECONDS.toMicros(registered - start),
+                TimeUnit.NANOSECONDS.toMicros(timedOut - registered),
+                TimeUnit.NANOSECONDS.toMicros(counted - timedOut),
+                TimeUnit.NANOSECONDS.toMicros(published - counted));
+    }
+}
@@ -0,0 +1,181 @@
+package study.reactiveStream;
+
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * topic별로 기다리는 DeferredResult(long polling)를 모아두는 곳
+ * ConcurrentLinkedDeque 하나에 전부 넣고, event마다 돌면서 remove(dr) 하던 것을 대신한다.
+ *
+ * 1. topic마다 SHARDS개의 shard로 나누고, shard마다 lock을 따로 둔다. (DeferredResult의 identityHashCode로 고른다.)
+ * 2. publish는 shard마다 lock 안에서 목록을 빈 목록으로 바꿔치기만 하고, setResult는 lock 밖에서 부른다.
+ * 3. timeout, 완료(연결 끊김 포함) 시 onTimeout, onCompletion에서 자기 shard의 목록에서 빠진다. (swap-remove, O(1))
+ * 4. 기다리는 수는 topic마다 따로 세므로 count는 목록을 돌지 않는다.
+ * 5. topic의 기다리는 수가 0이 되면 topic을 닫고 map에서 지운다. 닫힌 topic에는 등록하지 않고 새 topic을 만든다.
+ *    (topic 이름은 요청에서 오므로, 남겨두면 요청마다 새 topic이 쌓일 수 있다.)
+ *
+ * DeferredResult의 onTimeout, onCompletion은 callback을 하나만 가지므로, register 뒤에 다시 설정하면 자동으로 빠지지 않는다.
+ */
+public final class LongPollRegistry<T> {
+    static final int SHARDS = 16;
+
+    final Map<String, Topic<T>> topics = new ConcurrentHashMap<>();
+    final LongAdder waiting = new LongAdder();
+
+    /** topic을 기다리는 요청으로 등록한다. */
+    public DeferredResult<T> register(String topic, DeferredResult<T> result) {
+        Objects.requireNonNull(result, "result");
+        Objects.requireNonNull(topic, "topic");
+        for (;;) {
+            Topic<T> t = topics.computeIfAbsent(topic, name -> new Topic<>(name, topics, waiting));
+            if (t.acquire()) {
+                Shard<T> shard = t.shards[System.identityHashCode(result) & (SHARDS - 1)];
+                Waiter<T> waiter = new Waiter<>(result);
+                shard.add(waiter);
+                result.onTimeout(() -> shard.remove(waiter));
+                result.onCompletion(() -> shard.remove(waiter));
+                return result;
+            }
+            // 방금 닫힌 topic이다. 닫은 쪽이 map에서 지우기 전일 수 있으므로 직접 지우고 다시 만든다.
+            topics.remove(topic, t);
+        }
+    }
+
+    /** topic을 기다리던 요청 전부에 value로 응답하고, 응답한 수를 돌려준다. */
+    public int publish(String topic, T value) {
+        Topic<T> t = topics.get(topic);
+        if (t == null) {
+            return 0;
+        }
+        int delivered = 0;
+        for (Shard<T> shard : t.shards) {
+            for (Waiter<T> waiter : shard.drain()) {
+                // 그 사이에 timeout 된 요청은 false를 돌려준다.
+                if (waiter.result.setResult(value)) {
+                    delivered++;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    /** 전체 기다리는 요청 수 */
+    public long count() {
+        return waiting.sum();
+    }
+
+    /** topic을 기다리는 요청 수 */
+    public long count(String topic) {
+        Topic<T> t = topics.get(topic);
+        return t == null ? 0L : Math.max(0, t.waiting.get());
+    }
+
+    /** 기다리는 수(waiting)가 0이 되면 CLOSED로 바꾸고 map에서 빠진다. 닫힌 topic은 다시 쓰지 않는다. */
+    static final class Topic<T> {
+        static final int CLOSED = -1;
+
+        final String name;
+        final Map<String, Topic<T>> topics;
+        final LongAdder total;
+        final AtomicInteger waiting = new AtomicInteger();
+        final Shard<T>[] shards;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Topic(String name, Map<String, Topic<T>> topics, LongAdder total) {
+            this.name = name;
+            this.topics = topics;
+            this.total = total;
+            shards = new Shard[SHARDS];
+            for (int i = 0; i < SHARDS; i++) {
+                shards[i] = new Shard<>(this);
+            }
+        }
+
+        /** shard에 넣기 전에 부른다. 닫힌 topic이면 false */
+        boolean acquire() {
+            for (;;) {
+                int n = waiting.get();
+                if (n == CLOSED) {
+                    return false;
+                }
+                if (waiting.compareAndSet(n, n + 1)) {
+                    total.increment();
+                    return true;
+                }
+            }
+        }
+
+        /** shard에서 n개가 빠진 뒤에 부른다. 0이 되었을 때 그 사이에 acquire가 없었으면 닫는다. */
+        void release(int n) {
+            total.add(-n);
+            if (waiting.addAndGet(-n) == 0 && waiting.compareAndSet(0, CLOSED)) {
+                topics.remove(name, this);
+            }
+        }
+    }
+
+    /** 들어있는 목록과 그 안의 위치(index)를 들고 있어서 O(1)로 빠질 수 있다. 둘 다 shard의 lock 안에서만 바뀐다. */
+    static final class Waiter<T> {
+        final DeferredResult<T> result;
+        ArrayList<Waiter<T>> owner;
+        int index;
+
+        Waiter(DeferredResult<T> result) {
+            this.result = result;
+        }
+    }
+
+    static final class Shard<T> {
+        final Topic<T> topic;
+        ArrayList<Waiter<T>> waiters = new ArrayList<>();
+
+        Shard(Topic<T> topic) {
+            this.topic = topic;
+        }
+
+        synchronized void add(Waiter<T> waiter) {
+            waiter.owner = waiters;
+            waiter.index = waiters.size();
+            waiters.add(waiter);
+        }
+
+        /** 마지막 원소를 빈 자리로 옮긴다. 이미 빠졌다면(publish로 꺼내진 목록, 중복 호출) 아무것도 하지 않는다. */
+        synchronized void remove(Waiter<T> waiter) {
+            if (waiter.owner != waiters) {
+                return;
+            }
+            int i = waiter.index;
+            Waiter<T> last = waiters.remove(waiters.size() - 1);
+            if (last != waiter) {
+                waiters.set(i, last);
+                last.index = i;
+            }
+            waiter.owner = null;
+            topic.release(1);
+        }
+
+        /**
+         * 목록을 통째로 꺼내고 빈 목록으로 바꾼다. 꺼낸 목록의 Waiter는 owner가 달라서 remove가 무시된다.
+         * 비어 있으면 지금 목록 대신 List.of()를 돌려준다. (지금 목록은 lock 밖에서 돌리는 사이에 add 될 수 있다.)
+         */
+        List<Waiter<T>> drain() {
+            ArrayList<Waiter<T>> drained;
+            synchronized (this) {
+                drained = waiters;
+                if (drained.isEmpty()) {
+                    return List.of();
+                }
+                waiters = new ArrayList<>();
+            }
+            topic.release(drained.size());
+            return drained;
+        }
+    }
+}
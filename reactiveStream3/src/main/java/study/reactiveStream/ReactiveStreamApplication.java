@@ -13,12 +13,11 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.util.concurrent.ListenableFuture;
+import study.reactiveStream.chapter4.AsyncLog;
 import study.reactiveStream.chapter4.PrintThreadName;
 
 import java.util.concurrent.Future;
 
-import static study.reactiveStream.chapter4.PrintThreadName.getCurrentThread;
-
 /** SpringBoot Async Practice */
 //@SpringBootApplication
 @EnableAsync /** @EnableAsync를 추가해야 @Async 어노테이션이 동작한다. */
@@ -31,7 +30,7 @@ public class ReactiveStreamApplication {
 		// 리턴값을 받아오게 하기 위해서 Future 사용하기
 		@Async
 		public Future<String> hello() throws InterruptedException {
-			System.out.println(getCurrentThread() + "hello()");
+			AsyncLog.log("hello()");
 			Thread.sleep(1000);
 			// AsyncResult에 넣어서 리턴해준다.
 			return new AsyncResult<>("Hello");
@@ -41,7 +40,7 @@ public class ReactiveStreamApplication {
 		@Async
 //		@Async(value = "tp")
 		public ListenableFuture<String> hello2() throws InterruptedException {
-			System.out.println(getCurrentThread() + "hello()");
+			AsyncLog.log("hello()");
 			// 강의에서는 괜찮았는데 여기서 스레드 슬립 걸어버리면 인터럽트 걸려서 값이 정상적으로 안 온다...! 우선 지워둠.
 //			Thread.sleep(1000);
 			return new AsyncResult<>("Hello");
@@ -88,7 +87,7 @@ public class ReactiveStreamApplication {
 	@Bean
 	ApplicationRunner run() {
 		return args -> {
-			System.out.println(getCurrentThread() + "run()");
+			AsyncLog.log("run()");
 			// 오랜 시간이 걸리는 작업의 경우 이렇게 비동기로 실행할 수 있는데,
 			// 1) 작업이 끝나면 결과를 DB에 넣어두기
 			// 2) 혹은 HttpSession에 future 값을 넣어두고, 값을 꺼내서 isDone이 true일 때 값을 사용하는 방식으로 진행하기
@@ -103,10 +102,10 @@ public class ReactiveStreamApplication {
 			ListenableFuture<String> result2 = myService.hello2();
 
 			// ListenableFuture를 사용해서 success / error일 때의 콜백함수를 등록할 수 있다.
-			result2.addCallback(s -> System.out.println(getCurrentThread() + s),
-					e -> System.out.println(getCurrentThread() + e.getMessage()));
+			result2.addCallback(s -> AsyncLog.log("", s),
+					e -> AsyncLog.log("", e.getMessage()));
 
-			System.out.println(getCurrentThread() + "EXIT!");
+			AsyncLog.log("EXIT!");
 			};
 		/*
 		<Future>
@@ -6,15 +6,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import study.reactiveStream.chapter4.AsyncLog;
 
 import java.io.IOException;
-import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executors;
 
-import static study.reactiveStream.chapter4.PrintThreadName.getCurrentThread;
-
 /** Applying Web Application */
 @SpringBootApplication
 public class ReactiveStreamApplication2 {
@@ -55,9 +52,9 @@ public class ReactiveStreamApplication2 {
         // 리턴을 Callable로 감싸주게 되면 해당 처리를 스프링은 별도의 스레드를 만들어서 처리하도록 해준다/
         @GetMapping("/callable")
         public Callable<String> callable() throws InterruptedException {
-            System.out.println(getCurrentThread() + "callable() Call!");
+            AsyncLog.log("callable() Call!");
             return () -> {
-                System.out.println(getCurrentThread() + "Working...");
+                AsyncLog.log("Working...");
                 // 시간이 오래 걸리는 어떠한 작업이라고 가정
                 Thread.sleep(2000);
                 return "hello";
@@ -73,41 +70,44 @@ public class ReactiveStreamApplication2 {
         /** Sync Servlet */
         @GetMapping("/callable2")
         public String callable2() throws InterruptedException {
-            System.out.println(getCurrentThread() + "callable2() Call!");
+            AsyncLog.log("callable2() Call!");
             Thread.sleep(2000);
             return "hello";
         }
 
-        // DeferredResult를 저장해두는 queue 생성
-        Queue<DeferredResult<String>> results = new ConcurrentLinkedDeque<>();
+        // DeferredResult를 topic별로 저장해두는 registry 생성
+        // 예전에는 queue 하나에 전부 넣고 event마다 돌면서 remove(dr)를 불렀다. (remove가 O(n)이라 event 한 번이 O(n^2))
+        // count도 size()가 O(n)이었다. (LongPollRegistry 참고)
+        static final String DEFAULT_TOPIC = "default";
+        final LongPollRegistry<String> results = new LongPollRegistry<>();
 
         /** Deferred Result Queue */
         @GetMapping("/dr")
-        public DeferredResult<String> deferredResult() {
-            System.out.println(getCurrentThread() + "deferredResult() Call!");
+        public DeferredResult<String> deferredResult(String topic) {
+            AsyncLog.log("deferredResult() Call!");
             // 파라미터로 타임아웃 설정
             DeferredResult<String> dr = new DeferredResult<>(600000L);
-            // 저장해두기
-            results.add(dr);
-            return dr;
+            // 저장해두기, timeout 되거나 응답이 끝나면 알아서 빠진다.
+            return results.register(topicOf(topic), dr);
         }
 
         /** Return Queue Size */
         @GetMapping("/dr/count")
-        public String drCount() {
-            return String.valueOf(results.size());
+        public String drCount(String topic) {
+            return String.valueOf(topic == null ? results.count() : results.count(topic));
         }
 
         /** Return Result Value */
         @GetMapping("/dr/event")
-        public String drEvent(String message) {
-            for(DeferredResult<String> dr : results) {
-                dr.setResult("Hello " + message);
-                results.remove(dr);
-            }
+        public String drEvent(String message, String topic) {
+            results.publish(topicOf(topic), "Hello " + message);
             return "OK!";
         }
 
+        static String topicOf(String topic) {
+            return topic == null ? DEFAULT_TOPIC : topic;
+        }
+
         /** Emitter */
         @GetMapping("/emitter")
         public ResponseBodyEmitter emitter() {
@@ -13,11 +13,10 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import study.reactiveStream4.chapter8.AsyncLog;
 
 import java.util.concurrent.CompletableFuture;
 
-import static study.reactiveStream4.chapter8.PrintThreadName.getCurrentThread;
-
 /** WebFlux 적용하기 */
 @SpringBootApplication
 @EnableAsync
@@ -50,19 +49,19 @@ public class ReactiveStream4Application {
 		private Mono<String> advancedMono(int idx) {
 			return client.get().uri(URL1, idx).exchange()
 					.flatMap(cr1 -> cr1.bodyToMono(String.class))
-					// 로그 용도 추가
-					.doOnNext(c -> System.out.println(getCurrentThread() + c))
+					// 로그 용도 추가 (event loop 스레드에서 System.out lock을 잡지 않도록 AsyncLog에 남긴다.)
+					.doOnNext(AsyncLog.tap(""))
 					// 그 다음 api 호출도 연결해주기
 					// 여기까지 했을 때 리턴값은 Mono<ClientResponse>
 					.flatMap(str1 -> client.get().uri(URL2, str1).exchange())
-					.doOnNext(c -> System.out.println(getCurrentThread() + c))
+					.doOnNext(AsyncLog.tap(""))
 					// 이를 다시 Mono<String> 형으로 꺼내주기
 					.flatMap(cr2 -> cr2.bodyToMono(String.class))
-					.doOnNext(c -> System.out.println(getCurrentThread() + c))
+					.doOnNext(AsyncLog.tap(""))
 					// 서비스단의 리턴은 CompletableFuture<String>이기 때문에 Mono<String>으로 변환하는 작업이 필요하다.
 					// CompletableFuture는 CompletionStage를 상속하였으며, Mono 내부에서 이를 Mono 타입으로 변환해준다.
 					.flatMap(str2 -> Mono.fromCompletionStage(myService.work(str2)))
-					.doOnNext(c -> System.out.println(getCurrentThread() + c));
+					.doOnNext(AsyncLog.tap(""));
 			/*
 			로그 확인)
 			[reactor-http-nio-1] 1/service1